@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.adventureassets;
+
+/**
+ * Counts non-negative values in buckets of powers of two, which records a value with a few array operations and
+ * without allocating. Percentiles are estimated as the upper bound of the bucket they fall into, capped by the
+ * largest recorded value, so they are at most twice the exact value.
+ */
+final class Log2Histogram {
+
+    private static final int BUCKETS = 64;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long sum;
+    private long max;
+
+    void record(long value) {
+        value = Math.max(0, value);
+        counts[bucket(value)]++;
+        count++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    long getSum() {
+        return sum;
+    }
+
+    long getMax() {
+        return max;
+    }
+
+    /**
+     * @param fraction the fraction of values below the percentile, between 0 and 1
+     * @return the estimated percentile, or 0 if nothing was recorded
+     */
+    long getPercentile(double fraction) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long cumulative = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            cumulative += counts[bucket];
+            if (cumulative >= rank) {
+                return Math.min(upperBound(bucket), max);
+            }
+        }
+        return max;
+    }
+
+    void reset() {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            counts[bucket] = 0;
+        }
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    /**
+     * Bucket 0 holds the value 0, bucket b holds the values from 2^(b-1) to 2^b - 1.
+     */
+    private static int bucket(long value) {
+        return Long.SIZE - Long.numberOfLeadingZeros(value);
+    }
+
+    private static long upperBound(int bucket) {
+        return bucket >= Long.SIZE - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+}
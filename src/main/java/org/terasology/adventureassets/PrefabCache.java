@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.adventureassets;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.assets.management.AssetManager;
+import org.terasology.entitySystem.prefab.Prefab;
+import org.terasology.entitySystem.systems.BaseComponentSystem;
+import org.terasology.entitySystem.systems.RegisterMode;
+import org.terasology.entitySystem.systems.RegisterSystem;
+import org.terasology.registry.In;
+import org.terasology.registry.Share;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Holds the handles of the prefabs from which the module builds entities at runtime, so that they are resolved once
+ * instead of on every block activation or fireball shot.<br/>
+ * Prefabs are resolved on their first use, so a missing asset only affects the entities built from it and is
+ * reported with a warning, instead of failing the initialisation of every system that uses the cache.<br/>
+ * A reloaded asset keeps its handle, so the cached handles stay valid across asset reloads. A handle whose asset got
+ * disposed (e.g. when the module environment changes) is resolved again on its next use.
+ */
+@RegisterSystem(RegisterMode.ALWAYS)
+@Share(PrefabCache.class)
+public class PrefabCache extends BaseComponentSystem {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrefabCache.class);
+
+    public static final String SWINGING_BLADE_ROD = "AdventureAssets:rod";
+    public static final String SWINGING_BLADE_BLADE = "AdventureAssets:blade";
+    public static final String SWINGING_BLADE_MESH = "AdventureAssets:swingingBladeMesh";
+    public static final String SWINGING_BLADE_PLACEHOLDER = "AdventureAssets:swingingBladePlaceholder";
+    public static final String WIPE_OUT_ROD = "AdventureAssets:wipeOutRod";
+    public static final String WIPE_OUT_SURFBOARD = "AdventureAssets:wipeOutSurfboard";
+    public static final String WIPE_OUT_MESH = "AdventureAssets:wipeOutMesh";
+    public static final String WIPE_OUT_PLACEHOLDER = "AdventureAssets:wipeOutPlaceholder";
+    public static final String ALTAR_OF_RESURRECTION_COLLIDER = "AdventureAssets:altarOfResurrectionCollider";
+    public static final String ALTAR_OF_RESURRECTION_MESH = "AdventureAssets:altarOfResurrectionMesh";
+    public static final String ALTAR_OF_RESURRECTION_ORB = "AdventureAssets:altarOfResurrectionOrb";
+    public static final String ALTAR_OF_RESURRECTION_PARTICLE_EFFECT = "AdventureAssets:altarOfResurrectionParticleEffect";
+    public static final String SMOKE_EXPLOSION = "core:smokeExplosion";
+    public static final String FIREBALL = "Projectile:fireball";
+
+    @In
+    private AssetManager assetManager;
+
+    private final Map<String, Prefab> prefabs = Maps.newHashMap();
+    private final Set<String> missingPrefabs = Sets.newHashSet();
+
+    @Override
+    public void shutdown() {
+        prefabs.clear();
+        missingPrefabs.clear();
+    }
+
+    /**
+     * Returns the prefab with the given uri, resolving it if it is not cached yet or if its asset got disposed.
+     *
+     * @param uri the uri of the prefab, usually one of the constants of this class
+     * @return the prefab, or null if there is no prefab with the given uri
+     */
+    public Prefab get(String uri) {
+        Prefab prefab = prefabs.get(uri);
+        if (prefab == null || prefab.isDisposed()) {
+            prefab = resolve(uri);
+        }
+        return prefab;
+    }
+
+    private Prefab resolve(String uri) {
+        Prefab prefab = assetManager.getAsset(uri, Prefab.class).orElse(null);
+        if (prefab == null) {
+            if (missingPrefabs.add(uri)) {
+                logger.warn("Prefab {} not found", uri);
+            }
+            prefabs.remove(uri);
+            return null;
+        }
+        prefabs.put(uri, prefab);
+        return prefab;
+    }
+}
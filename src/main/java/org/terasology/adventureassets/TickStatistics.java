@@ -0,0 +1,188 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.adventureassets;
+
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.entitySystem.systems.BaseComponentSystem;
+import org.terasology.entitySystem.systems.RegisterMode;
+import org.terasology.entitySystem.systems.RegisterSystem;
+import org.terasology.logic.console.commandSystem.annotations.Command;
+import org.terasology.logic.permission.PermissionManager;
+import org.terasology.registry.Share;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Collects per-tick statistics of the update systems of the module, so that it can be told which trap type costs
+ * how much of the tick.<br/>
+ * Every update system registers itself once and records the wall time, the number of entities visited, the number of
+ * component saves issued and the number of entities created by each of its updates. Expensive event handlers, like
+ * building the children of a trap or configuring the traps of a structure, register a span named after the system
+ * and the handler and record every run the same way. The values are kept in histograms of powers of two, so recording
+ * is cheap enough to stay enabled on production servers. The console commands {@code adventureAssetsStats} and
+ * {@code adventureAssetsStatsReset} run on the server and print and reset the statistics of the systems running
+ * there, so they can be used from a client connected to a dedicated server by a player with the server management
+ * permission.<br/>
+ * Every update or span that takes longer than the hitch threshold is counted as a hitch and logged with its entity
+ * counts, at most once per {@link #HITCH_LOG_INTERVAL} for each system or span, so that a hitch on a live server can
+ * be attributed to a trap system from the log alone.
+ */
+@RegisterSystem(RegisterMode.ALWAYS)
+@Share(TickStatistics.class)
+public class TickStatistics extends BaseComponentSystem {
+
+    private static final Logger logger = LoggerFactory.getLogger(TickStatistics.class);
+
+    /**
+     * Time (in milliseconds) from which an update or span counts as a hitch
+     */
+    public static final float DEFAULT_HITCH_THRESHOLD = 10f;
+
+    /**
+     * Shortest time (in nanoseconds) between two logged hitches of the same system or span
+     */
+    public static final long HITCH_LOG_INTERVAL = 10_000_000_000L;
+
+    private final Map<String, SystemStatistics> systems = Maps.newTreeMap();
+    private long hitchThresholdNanos;
+
+    public TickStatistics() {
+        setHitchThreshold(DEFAULT_HITCH_THRESHOLD);
+    }
+
+    /**
+     * @param hitchThreshold time (in milliseconds) from which an update or span counts as a hitch
+     */
+    public void setHitchThreshold(float hitchThreshold) {
+        this.hitchThresholdNanos = (long) (hitchThreshold * 1_000_000);
+    }
+
+    /**
+     * Returns the statistics of the system with the given name, creating them on first use.
+     *
+     * @param systemName the name under which the statistics are printed, usually the simple class name, followed by
+     *                   the name of the handler for spans
+     * @return the statistics to record the updates of the system into
+     */
+    public SystemStatistics register(String systemName) {
+        SystemStatistics statistics = systems.get(systemName);
+        if (statistics == null) {
+            statistics = new SystemStatistics(systemName);
+            systems.put(systemName, statistics);
+        }
+        return statistics;
+    }
+
+    @Command(shortDescription = "Prints the tick statistics of the AdventureAssets systems",
+            helpText = "Prints p50, p99 and max of the time (in microseconds), entities visited, component saves and " +
+                    "entities created per update of every AdventureAssets system and per run of every span running " +
+                    "on the server, and the number of hitches.",
+            runOnServer = true, requiredPermission = PermissionManager.SERVER_MANAGEMENT_PERMISSION)
+    public String adventureAssetsStats() {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, SystemStatistics> entry : systems.entrySet()) {
+            SystemStatistics statistics = entry.getValue();
+            if (statistics.wallTime.getCount() == 0) {
+                continue;
+            }
+            builder.append(entry.getKey()).append(" (").append(statistics.wallTime.getCount()).append(" samples, ")
+                    .append(statistics.hitchCount).append(" hitches)\n");
+            append(builder, "time us", statistics.wallTime, 1000);
+            append(builder, "visited", statistics.visited, 1);
+            append(builder, "saves", statistics.saves, 1);
+            append(builder, "created", statistics.created, 1);
+        }
+        return builder.length() == 0 ? "No updates recorded" : builder.toString();
+    }
+
+    @Command(shortDescription = "Resets the tick statistics of the AdventureAssets systems",
+            runOnServer = true, requiredPermission = PermissionManager.SERVER_MANAGEMENT_PERMISSION)
+    public String adventureAssetsStatsReset() {
+        for (SystemStatistics statistics : systems.values()) {
+            statistics.reset();
+        }
+        return "Tick statistics reset";
+    }
+
+    @Override
+    public void shutdown() {
+        systems.clear();
+    }
+
+    private static void append(StringBuilder builder, String name, Log2Histogram histogram, long unit) {
+        builder.append(String.format(Locale.ROOT, "  %-8s p50 %d  p99 %d  max %d  total %d%n", name,
+                histogram.getPercentile(0.5) / unit, histogram.getPercentile(0.99) / unit, histogram.getMax() / unit,
+                histogram.getSum() / unit));
+    }
+
+    /**
+     * The statistics of the updates of one system, or of the runs of one span. Only to be used from the main thread.
+     */
+    public final class SystemStatistics {
+        private final String name;
+        private final Log2Histogram wallTime = new Log2Histogram();
+        private final Log2Histogram visited = new Log2Histogram();
+        private final Log2Histogram saves = new Log2Histogram();
+        private final Log2Histogram created = new Log2Histogram();
+        private long hitchCount;
+        private long unloggedHitches;
+        private long nextHitchLogTime;
+
+        private SystemStatistics(String name) {
+            this.name = name;
+            this.nextHitchLogTime = System.nanoTime();
+        }
+
+        /**
+         * Records one update of the system.
+         *
+         * @param nanos   the wall time of the update (in nanoseconds)
+         * @param visited the number of entities the update looked at
+         * @param saves   the number of component saves the update issued
+         * @param created the number of entities the update created
+         */
+        public void record(long nanos, int visited, int saves, int created) {
+            this.wallTime.record(nanos);
+            this.visited.record(visited);
+            this.saves.record(saves);
+            this.created.record(created);
+            if (nanos >= hitchThresholdNanos) {
+                hitchCount++;
+                unloggedHitches++;
+                long now = System.nanoTime();
+                if (now - nextHitchLogTime >= 0) {
+                    logger.warn("Hitch in {}: {} ms, {} entities visited, {} component saves, {} entities created " +
+                            "({} hitches since the last report)", name, nanos / 1_000_000f, visited, saves, created,
+                            unloggedHitches);
+                    unloggedHitches = 0;
+                    nextHitchLogTime = now + HITCH_LOG_INTERVAL;
+                }
+            }
+        }
+
+        private void reset() {
+            wallTime.reset();
+            visited.reset();
+            saves.reset();
+            created.reset();
+            hitchCount = 0;
+            unloggedHitches = 0;
+        }
+    }
+}
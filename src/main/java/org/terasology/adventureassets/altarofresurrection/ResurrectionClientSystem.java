@@ -15,7 +15,7 @@
  */
 package org.terasology.adventureassets.altarofresurrection;
 
-import org.terasology.assets.management.AssetManager;
+import org.terasology.adventureassets.PrefabCache;
 import org.terasology.entitySystem.entity.EntityBuilder;
 import org.terasology.entitySystem.entity.EntityManager;
 import org.terasology.entitySystem.entity.EntityRef;
@@ -46,7 +46,7 @@ public class ResurrectionClientSystem extends BaseComponentSystem {
     @In
     private LocalPlayer localPlayer;
     @In
-    private AssetManager assetManager;
+    private PrefabCache prefabCache;
     @In
     private EntityManager entityManager;
 
@@ -62,7 +62,11 @@ public class ResurrectionClientSystem extends BaseComponentSystem {
      */
     @ReceiveEvent(components = {AltarOfResurrectionRootComponent.class, BlockComponent.class})
     public void onAltarOfResurrectionCreated(OnActivatedComponent event, EntityRef entity, AltarOfResurrectionRootComponent altarOfResurrectionRootComponent) {
-        Prefab angelMeshPrefab = assetManager.getAsset("AdventureAssets:altarOfResurrectionMesh", Prefab.class).get();
+        Prefab angelMeshPrefab = prefabCache.get(PrefabCache.ALTAR_OF_RESURRECTION_MESH);
+        Prefab angelOrbPrefab = prefabCache.get(PrefabCache.ALTAR_OF_RESURRECTION_ORB);
+        if (angelMeshPrefab == null || angelOrbPrefab == null) {
+            return;
+        }
         EntityBuilder angelMeshEntityBuilder = entityManager.newBuilder(angelMeshPrefab);
         angelMeshEntityBuilder.setOwner(entity);
         angelMeshEntityBuilder.setPersistent(false);
@@ -70,7 +74,6 @@ public class ResurrectionClientSystem extends BaseComponentSystem {
         Location.attachChild(entity, angelMesh, new Vector3f(0, 1f, 0), new Quat4f(Quat4f.IDENTITY));
         altarOfResurrectionRootComponent.meshEntity = angelMesh;
 
-        Prefab angelOrbPrefab = assetManager.getAsset("AdventureAssets:altarOfResurrectionOrb", Prefab.class).get();
         EntityBuilder angelOrbEntityBuilder = entityManager.newBuilder(angelOrbPrefab);
         angelOrbEntityBuilder.setOwner(entity);
         angelOrbEntityBuilder.setPersistent(false);
@@ -203,20 +206,22 @@ public class ResurrectionClientSystem extends BaseComponentSystem {
 
     private void spawnParticlesOnActivate(Vector3f spawnPos) {
         // Create rising blue particles
-        EntityBuilder entityBuilder = entityManager.newBuilder("AdventureAssets:altarOfResurrectionParticleEffect");
-        LocationComponent locationComponent = entityBuilder.getComponent(LocationComponent.class);
-        locationComponent.setWorldPosition(spawnPos);
-        entityBuilder.build();
+        spawnEffect(PrefabCache.ALTAR_OF_RESURRECTION_PARTICLE_EFFECT, spawnPos);
         // Create a smoke explosion
-        entityBuilder = entityManager.newBuilder("core:smokeExplosion");
-        locationComponent = entityBuilder.getComponent(LocationComponent.class);
-        locationComponent.setWorldPosition(spawnPos);
-        entityBuilder.build();
+        spawnEffect(PrefabCache.SMOKE_EXPLOSION, spawnPos);
     }
 
     private void spawnParticlesOnDeactivate(Vector3f spawnPos) {
         // Create a smoke explosion
-        EntityBuilder entityBuilder = entityManager.newBuilder("core:smokeExplosion");
+        spawnEffect(PrefabCache.SMOKE_EXPLOSION, spawnPos);
+    }
+
+    private void spawnEffect(String prefabUri, Vector3f spawnPos) {
+        Prefab prefab = prefabCache.get(prefabUri);
+        if (prefab == null) {
+            return;
+        }
+        EntityBuilder entityBuilder = entityManager.newBuilder(prefab);
         LocationComponent locationComponent = entityBuilder.getComponent(LocationComponent.class);
         locationComponent.setWorldPosition(spawnPos);
         entityBuilder.build();
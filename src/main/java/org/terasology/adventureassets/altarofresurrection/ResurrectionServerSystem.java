@@ -15,10 +15,15 @@
  */
 package org.terasology.adventureassets.altarofresurrection;
 
-import org.terasology.assets.management.AssetManager;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.SetMultimap;
+import org.terasology.adventureassets.PrefabCache;
+import org.terasology.adventureassets.TickStatistics;
 import org.terasology.entitySystem.entity.EntityBuilder;
 import org.terasology.entitySystem.entity.EntityManager;
 import org.terasology.entitySystem.entity.EntityRef;
+import org.terasology.entitySystem.entity.lifecycleEvents.BeforeDeactivateComponent;
 import org.terasology.entitySystem.entity.lifecycleEvents.BeforeRemoveComponent;
 import org.terasology.entitySystem.entity.lifecycleEvents.OnActivatedComponent;
 import org.terasology.entitySystem.event.EventPriority;
@@ -44,9 +49,59 @@ import org.terasology.world.block.BlockComponent;
 public class ResurrectionServerSystem extends BaseComponentSystem {
 
     @In
-    private AssetManager assetManager;
+    private PrefabCache prefabCache;
     @In
     private EntityManager entityManager;
+    @In
+    private TickStatistics tickStatistics;
+
+    /**
+     * The clientInfo entities bound to each altar of resurrection via their {@link RevivePlayerComponent}
+     */
+    private final SetMultimap<EntityRef, EntityRef> boundClientInfos = HashMultimap.create();
+
+    private TickStatistics.SystemStatistics createdStatistics;
+    private TickStatistics.SystemStatistics interactStatistics;
+
+    @Override
+    public void initialise() {
+        createdStatistics = tickStatistics.register(ResurrectionServerSystem.class.getSimpleName() + ".onAltarOfResurrectionCreated");
+        interactStatistics = tickStatistics.register(ResurrectionServerSystem.class.getSimpleName() + ".onAltarOfResurrectionInteract");
+    }
+
+    @Override
+    public void postBegin() {
+        for (EntityRef clientInfo : entityManager.getEntitiesWith(RevivePlayerComponent.class)) {
+            bind(clientInfo, clientInfo.getComponent(RevivePlayerComponent.class));
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        boundClientInfos.clear();
+    }
+
+    /**
+     * Indexes the clientInfo entity under the altar of resurrection it gets bound to.
+     *
+     * @param event
+     * @param clientInfo
+     * @param revivePlayerComponent
+     */
+    @ReceiveEvent
+    public void onRevivePlayerActivated(OnActivatedComponent event, EntityRef clientInfo, RevivePlayerComponent revivePlayerComponent) {
+        bind(clientInfo, revivePlayerComponent);
+    }
+
+    @ReceiveEvent
+    public void onRevivePlayerRemoved(BeforeRemoveComponent event, EntityRef clientInfo, RevivePlayerComponent revivePlayerComponent) {
+        unbind(clientInfo, revivePlayerComponent);
+    }
+
+    @ReceiveEvent
+    public void onRevivePlayerDeactivated(BeforeDeactivateComponent event, EntityRef clientInfo, RevivePlayerComponent revivePlayerComponent) {
+        unbind(clientInfo, revivePlayerComponent);
+    }
 
     /**
      * This method intercepts the RespawnRequestEvent and makes a change to the LocationComponent of the client after
@@ -77,7 +132,11 @@ public class ResurrectionServerSystem extends BaseComponentSystem {
      */
     @ReceiveEvent(components = {AltarOfResurrectionRootComponent.class, BlockComponent.class})
     public void onAltarOfResurrectionCreated(OnActivatedComponent event, EntityRef entity, AltarOfResurrectionRootComponent altarOfResurrectionRootComponent) {
-        Prefab angelColliderPrefab = assetManager.getAsset("AdventureAssets:altarOfResurrectionCollider", Prefab.class).get();
+        long start = System.nanoTime();
+        Prefab angelColliderPrefab = prefabCache.get(PrefabCache.ALTAR_OF_RESURRECTION_COLLIDER);
+        if (angelColliderPrefab == null) {
+            return;
+        }
         EntityBuilder angelColliderEntityBuilder = entityManager.newBuilder(angelColliderPrefab);
         angelColliderEntityBuilder.setOwner(entity);
         angelColliderEntityBuilder.setPersistent(true);
@@ -85,12 +144,14 @@ public class ResurrectionServerSystem extends BaseComponentSystem {
         Location.attachChild(entity, angelCollider, new Vector3f(0, 1f, 0), new Quat4f(Quat4f.IDENTITY));
         altarOfResurrectionRootComponent.colliderEntity = angelCollider;
         entity.saveComponent(altarOfResurrectionRootComponent);
+        createdStatistics.record(System.nanoTime() - start, 1, 1, 1);
     }
 
     /**
      * This method deals with the destruction of the altar of resurrection. The collider entity on the server side is destroyed.
      * In addition, any clientInfo entity that has the {@link RevivePlayerComponent} for the same altar of resurrection entity
-     * being destroyed, has its {@link RevivePlayerComponent} removed.
+     * being destroyed, has its {@link RevivePlayerComponent} removed. These clientInfo entities are looked up in the
+     * index of bound clientInfos, so the other players are not touched.
      *
      * @param event
      * @param entity
@@ -101,14 +162,12 @@ public class ResurrectionServerSystem extends BaseComponentSystem {
         altarOfResurrectionRootComponent.colliderEntity.destroy();
 
         // Removes RevivePlayerComponent from clientInfo upon destruction of an altar of resurrection
-        for (EntityRef clientInfo : entityManager.getEntitiesWith(RevivePlayerComponent.class)) {
-            RevivePlayerComponent revivePlayerComponent = clientInfo.getComponent(RevivePlayerComponent.class);
-            if (revivePlayerComponent.altarOfResurrectionEntity.equals(entity)) {
-                clientInfo.removeComponent(RevivePlayerComponent.class);
-                EntityRef client = clientInfo.getComponent(ClientInfoComponent.class).client;
-                client.send(new NotificationMessageEvent("Deactivated Altar of Resurrection due to destruction", client));
-            }
+        for (EntityRef clientInfo : Lists.newArrayList(boundClientInfos.get(entity))) {
+            clientInfo.removeComponent(RevivePlayerComponent.class);
+            EntityRef client = clientInfo.getComponent(ClientInfoComponent.class).client;
+            client.send(new NotificationMessageEvent("Deactivated Altar of Resurrection due to destruction", client));
         }
+        boundClientInfos.removeAll(entity);
     }
 
     /**
@@ -145,6 +204,8 @@ public class ResurrectionServerSystem extends BaseComponentSystem {
      */
     @ReceiveEvent
     public void onAltarOfResurrectionInteract(ActivateEvent event, EntityRef entity, AltarOfResurrectionRootComponent altarOfResurrectionRootComponent) {
+        long start = System.nanoTime();
+        int componentWrites = 1;
         EntityRef clientInfo = event.getInstigator().getOwner().getComponent(ClientComponent.class).clientInfo;
 
         if (clientInfo.hasComponent(RevivePlayerComponent.class)) {
@@ -154,12 +215,14 @@ public class ResurrectionServerSystem extends BaseComponentSystem {
             } else {
                 clientInfo.removeComponent(RevivePlayerComponent.class);
                 addRevivePlayerComponent(clientInfo, entity);
+                componentWrites = 2;
                 /* Note: Despite a remove and add component happening on the clientInfo entity above, the event is
                    collectively received as a OnChangedComponent on the client system. */
             }
         } else {
             addRevivePlayerComponent(clientInfo, entity);
         }
+        interactStatistics.record(System.nanoTime() - start, 1, componentWrites, 0);
     }
 
     private void addRevivePlayerComponent(EntityRef clientInfo, EntityRef altarOfResurrection) {
@@ -169,4 +232,16 @@ public class ResurrectionServerSystem extends BaseComponentSystem {
         revivePlayerComponent.altarOfResurrectionEntity = altarOfResurrection;
         clientInfo.addComponent(revivePlayerComponent);
     }
+
+    private void bind(EntityRef clientInfo, RevivePlayerComponent revivePlayerComponent) {
+        if (revivePlayerComponent.altarOfResurrectionEntity != null) {
+            boundClientInfos.put(revivePlayerComponent.altarOfResurrectionEntity, clientInfo);
+        }
+    }
+
+    private void unbind(EntityRef clientInfo, RevivePlayerComponent revivePlayerComponent) {
+        if (revivePlayerComponent.altarOfResurrectionEntity != null) {
+            boundClientInfos.remove(revivePlayerComponent.altarOfResurrectionEntity, clientInfo);
+        }
+    }
 }
@@ -17,6 +17,7 @@ package org.terasology.adventureassets.altarofresurrection;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.terasology.adventureassets.TickStatistics;
 import org.terasology.entitySystem.entity.EntityBuilder;
 import org.terasology.entitySystem.entity.EntityManager;
 import org.terasology.entitySystem.entity.EntityRef;
@@ -45,9 +46,23 @@ public class ResurrectionTextSystem extends BaseComponentSystem implements Updat
     private LocalPlayer localPlayer;
     @In
     private EntityManager entityManager;
+    @In
+    private TickStatistics tickStatistics;
 
     private EntityRef floatingTextEntity = null;
 
+    /**
+     * The altar of resurrection the floating text is attached to, or {@link EntityRef#NULL} if it is hidden
+     */
+    private EntityRef labelledAltar = EntityRef.NULL;
+    private Label label;
+    private TickStatistics.SystemStatistics statistics;
+
+    @Override
+    public void initialise() {
+        statistics = tickStatistics.register(ResurrectionTextSystem.class.getSimpleName());
+    }
+
     @Override
     public void postBegin() {
         EntityBuilder floatingTextBuilder = entityManager.newBuilder();
@@ -55,41 +70,96 @@ public class ResurrectionTextSystem extends BaseComponentSystem implements Updat
         floatingTextEntity = floatingTextBuilder.build();
     }
 
+    /**
+     * Shows the floating text above the targeted altar of resurrection. The components of the floating text entity are
+     * only touched when the targeted altar or its activation state changes.
+     *
+     * @param delta The time (in seconds) since the last engine update.
+     */
     @Override
     public void update(float delta) {
-        if (cameraTargetSystem.isTargetAvailable()) {
-            EntityRef targetEntity = cameraTargetSystem.getTarget();
-            if (!(targetEntity.hasComponent(AltarOfResurrectionColliderComponent.class) ||
-                    targetEntity.hasComponent(AltarOfResurrectionRootComponent.class))) {
-                floatingTextEntity.removeComponent(LocationComponent.class);
-                return;
-            }
+        long start = System.nanoTime();
+        int componentWrites = updateLabel();
+        statistics.record(System.nanoTime() - start, 1, componentWrites, 0);
+    }
 
-            FloatingTextComponent floatingTextComponent = new FloatingTextComponent();
-            floatingTextComponent.scale = 1f;
-            LocationComponent locationComponent = new LocationComponent();
+    /**
+     * @return the number of component writes to the floating text entity
+     */
+    private int updateLabel() {
+        if (!cameraTargetSystem.isTargetAvailable()) {
+            return 0;
+        }
+        EntityRef targetEntity = cameraTargetSystem.getTarget();
+        if (targetEntity.hasComponent(AltarOfResurrectionColliderComponent.class)) {
+            targetEntity = targetEntity.getOwner();
+        } else if (!targetEntity.hasComponent(AltarOfResurrectionRootComponent.class)) {
+            return hideLabel();
+        }
 
-            if (targetEntity.hasComponent(AltarOfResurrectionColliderComponent.class)) {
-                targetEntity = targetEntity.getOwner();
-            }
-            floatingTextComponent.text = "Activate to revive here";
-            floatingTextComponent.textColor = Color.GREEN;
-
-            EntityRef clientInfo = localPlayer.getClientInfoEntity();
-            if (clientInfo.hasComponent(RevivePlayerComponent.class)) {
-                EntityRef activatedAltarOfResurrection = clientInfo.getComponent(RevivePlayerComponent.class).altarOfResurrectionEntity;
-                if (activatedAltarOfResurrection.equals(targetEntity)) {
-                    floatingTextComponent.text = "Altar of Resurrection Activated";
-                    floatingTextComponent.textColor = Color.YELLOW;
-                } else {
-                    floatingTextComponent.text = "Activate to revive here\n(will deactivate previous)";
-                    floatingTextComponent.textColor = Color.CYAN;
-                }
+        Label targetLabel = Label.ACTIVATE;
+        EntityRef clientInfo = localPlayer.getClientInfoEntity();
+        RevivePlayerComponent revivePlayerComponent = clientInfo.getComponent(RevivePlayerComponent.class);
+        if (revivePlayerComponent != null) {
+            if (targetEntity.equals(revivePlayerComponent.altarOfResurrectionEntity)) {
+                targetLabel = Label.ACTIVATED;
+            } else {
+                targetLabel = Label.REPLACE;
             }
+        }
 
-            floatingTextEntity.addOrSaveComponent(floatingTextComponent);
-            floatingTextEntity.addOrSaveComponent(locationComponent);
+        int componentWrites = 0;
+        if (targetLabel != label) {
+            FloatingTextComponent floatingTextComponent = floatingTextEntity.getComponent(FloatingTextComponent.class);
+            if (floatingTextComponent == null) {
+                floatingTextComponent = new FloatingTextComponent();
+                floatingTextComponent.scale = 1f;
+                floatingTextComponent.text = targetLabel.text;
+                floatingTextComponent.textColor = targetLabel.textColor;
+                floatingTextEntity.addComponent(floatingTextComponent);
+            } else {
+                floatingTextComponent.text = targetLabel.text;
+                floatingTextComponent.textColor = targetLabel.textColor;
+                floatingTextEntity.saveComponent(floatingTextComponent);
+            }
+            label = targetLabel;
+            componentWrites++;
+        }
+        if (!targetEntity.equals(labelledAltar)) {
+            if (!floatingTextEntity.hasComponent(LocationComponent.class)) {
+                floatingTextEntity.addComponent(new LocationComponent());
+                componentWrites++;
+            }
             Location.attachChild(targetEntity, floatingTextEntity, new Vector3f(0, 1.0f, 0), new Quat4f(1, 0, 0, 0));
+            labelledAltar = targetEntity;
+            componentWrites++;
+        }
+        return componentWrites;
+    }
+
+    /**
+     * @return the number of component writes to the floating text entity
+     */
+    private int hideLabel() {
+        labelledAltar = EntityRef.NULL;
+        if (floatingTextEntity.hasComponent(LocationComponent.class)) {
+            floatingTextEntity.removeComponent(LocationComponent.class);
+            return 1;
+        }
+        return 0;
+    }
+
+    private enum Label {
+        ACTIVATE("Activate to revive here", Color.GREEN),
+        ACTIVATED("Altar of Resurrection Activated", Color.YELLOW),
+        REPLACE("Activate to revive here\n(will deactivate previous)", Color.CYAN);
+
+        private final String text;
+        private final Color textColor;
+
+        Label(String text, Color textColor) {
+            this.text = text;
+            this.textColor = textColor;
         }
     }
 }
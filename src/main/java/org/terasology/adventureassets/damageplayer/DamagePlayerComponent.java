@@ -24,4 +24,9 @@ import org.terasology.entitySystem.Component;
 public class DamagePlayerComponent implements Component {
     public float damage = 10;
     public float recoil = 5;
+
+    /**
+     * Time (in seconds) after a hit during which the same player is not damaged again by this entity
+     */
+    public float invulnerabilityPeriod = 0.5f;
 }
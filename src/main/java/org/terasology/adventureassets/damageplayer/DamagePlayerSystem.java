@@ -15,14 +15,19 @@
  */
 package org.terasology.adventureassets.damageplayer;
 
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Table;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.terasology.adventureassets.TickStatistics;
+import org.terasology.engine.Time;
 import org.terasology.entitySystem.entity.EntityManager;
 import org.terasology.entitySystem.entity.EntityRef;
 import org.terasology.entitySystem.event.ReceiveEvent;
 import org.terasology.entitySystem.systems.BaseComponentSystem;
 import org.terasology.entitySystem.systems.RegisterMode;
 import org.terasology.entitySystem.systems.RegisterSystem;
+import org.terasology.entitySystem.systems.UpdateSubscriberSystem;
 import org.terasology.logic.characters.AliveCharacterComponent;
 import org.terasology.logic.characters.CharacterImpulseEvent;
 import org.terasology.logic.health.DoDamageEvent;
@@ -32,20 +37,82 @@ import org.terasology.math.geom.Vector3f;
 import org.terasology.physics.events.CollideEvent;
 import org.terasology.registry.In;
 
+/**
+ * Damages and pushes back players touching an entity with a {@link DamagePlayerComponent}.<br/>
+ * Collisions are not applied right away, since the physics engine may report a collision between the same pair of
+ * entities on every physics step. All collisions of a damager with a player in a tick are merged into one hit, which
+ * is applied in {@link #update(float)}. After a hit, further collisions of the pair are ignored for the
+ * invulnerability period of the damager.
+ */
 @RegisterSystem(RegisterMode.AUTHORITY)
-public class DamagePlayerSystem extends BaseComponentSystem{
+public class DamagePlayerSystem extends BaseComponentSystem implements UpdateSubscriberSystem {
 
     private static final Logger logger = LoggerFactory.getLogger(DamagePlayerSystem.class);
 
     @In
     private EntityManager entityManager;
+    @In
+    private Time time;
+    @In
+    private TickStatistics tickStatistics;
+
+    /**
+     * The collision normal of the first collision of each damager (row) with each player (column) in this tick
+     */
+    private final Table<EntityRef, EntityRef, Vector3f> pendingHits = HashBasedTable.create();
+
+    /**
+     * The game time (in milliseconds) until which each player (column) is invulnerable to each damager (row)
+     */
+    private final Table<EntityRef, EntityRef, Long> invulnerableUntil = HashBasedTable.create();
+
+    private TickStatistics.SystemStatistics statistics;
+
+    @Override
+    public void initialise() {
+        statistics = tickStatistics.register(DamagePlayerSystem.class.getSimpleName());
+    }
 
     @ReceiveEvent
     public void onCollide(CollideEvent event, EntityRef entity, DamagePlayerComponent damagePlayerComponent) {
         EntityRef player = event.getOtherEntity();
-        if (player.hasComponent(AliveCharacterComponent.class)) {
-            player.send(new CharacterImpulseEvent(new Vector3f(event.getNormal()).mul(-1*damagePlayerComponent.recoil)));
+        if (!player.hasComponent(AliveCharacterComponent.class) || pendingHits.contains(entity, player)) {
+            return;
+        }
+        Long invulnerableTime = invulnerableUntil.get(entity, player);
+        if (invulnerableTime != null && time.getGameTimeInMs() < invulnerableTime) {
+            return;
+        }
+        pendingHits.put(entity, player, new Vector3f(event.getNormal()));
+    }
+
+    @Override
+    public void update(float delta) {
+        long start = System.nanoTime();
+        long now = time.getGameTimeInMs();
+        if (!invulnerableUntil.isEmpty()) {
+            invulnerableUntil.values().removeIf(invulnerableTime -> invulnerableTime <= now);
+        }
+        for (Table.Cell<EntityRef, EntityRef, Vector3f> hit : pendingHits.cellSet()) {
+            EntityRef entity = hit.getRowKey();
+            EntityRef player = hit.getColumnKey();
+            DamagePlayerComponent damagePlayerComponent = entity.getComponent(DamagePlayerComponent.class);
+            if (damagePlayerComponent == null || !player.hasComponent(AliveCharacterComponent.class)) {
+                continue;
+            }
+            player.send(new CharacterImpulseEvent(hit.getValue().mul(-1 * damagePlayerComponent.recoil)));
             player.send(new DoDamageEvent(TeraMath.floorToInt(damagePlayerComponent.damage), EngineDamageTypes.PHYSICAL.get(), entity));
+            if (damagePlayerComponent.invulnerabilityPeriod > 0) {
+                invulnerableUntil.put(entity, player, now + (long) (damagePlayerComponent.invulnerabilityPeriod * 1000));
+            }
         }
+        statistics.record(System.nanoTime() - start, pendingHits.size(), 0, 0);
+        pendingHits.clear();
+    }
+
+    @Override
+    public void shutdown() {
+        pendingHits.clear();
+        invulnerableUntil.clear();
     }
 }
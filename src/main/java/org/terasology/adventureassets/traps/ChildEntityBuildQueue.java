@@ -0,0 +1,197 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.adventureassets.traps;
+
+import com.google.common.collect.Maps;
+import org.terasology.adventureassets.TickStatistics;
+import org.terasology.entitySystem.entity.EntityRef;
+import org.terasology.entitySystem.systems.BaseComponentSystem;
+import org.terasology.entitySystem.systems.RegisterMode;
+import org.terasology.entitySystem.systems.RegisterSystem;
+import org.terasology.entitySystem.systems.UpdateSubscriberSystem;
+import org.terasology.registry.In;
+import org.terasology.registry.Share;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Spreads the construction of the child entities of traps (rods, blades, surfboards and meshes) over several frames.
+ * <br/>
+ * When a chunk or a structure with many traps activates, the activation handlers only enqueue the construction of the
+ * children of each trap root. Every frame the queued builds are run until the frame budget is used up. Builds of
+ * collider children run before builds of meshes, so that traps become dangerous as early as possible. Until its mesh
+ * is built, a trap is shown as a lightweight placeholder mesh.<br/>
+ * A build is dropped if its root is no longer active when its turn comes. Enqueuing a build for a root which already
+ * has a pending build of the same priority replaces that build.<br/>
+ * The builds report the component writes and entities they do. Every build is recorded in the {@link TickStatistics}
+ * under the {@code build} span, so that the component writes per trap activation are visible, and every frame with
+ * pending builds is recorded with the builds it ran.
+ */
+@RegisterSystem(RegisterMode.ALWAYS)
+@Share(ChildEntityBuildQueue.class)
+public class ChildEntityBuildQueue extends BaseComponentSystem implements UpdateSubscriberSystem {
+
+    /**
+     * Time (in milliseconds) per frame that may be spent on building child entities
+     */
+    public static final float DEFAULT_FRAME_BUDGET = 2f;
+
+    public enum Priority {
+        /**
+         * Children the players collide with, built first
+         */
+        COLLIDER,
+        /**
+         * Children which are only rendered
+         */
+        MESH
+    }
+
+    @In
+    private TickStatistics tickStatistics;
+
+    private final Map<Priority, Map<EntityRef, Consumer<EntityRef>>> pendingBuilds = Maps.newEnumMap(Priority.class);
+    private long frameBudgetNanos;
+
+    private int frameBuilds;
+    private int frameComponentWrites;
+    private int frameCreatedEntities;
+    private int buildComponentWrites;
+    private int buildCreatedEntities;
+    private TickStatistics.SystemStatistics statistics;
+    private TickStatistics.SystemStatistics buildStatistics;
+
+    public ChildEntityBuildQueue() {
+        for (Priority priority : Priority.values()) {
+            pendingBuilds.put(priority, Maps.newLinkedHashMap());
+        }
+        setFrameBudget(DEFAULT_FRAME_BUDGET);
+    }
+
+    @Override
+    public void initialise() {
+        statistics = tickStatistics.register(ChildEntityBuildQueue.class.getSimpleName());
+        buildStatistics = tickStatistics.register(ChildEntityBuildQueue.class.getSimpleName() + ".build");
+    }
+
+    /**
+     * @param frameBudget time (in milliseconds) per frame that may be spent on building child entities. At least one
+     *                    build is run per frame, whatever the budget.
+     */
+    public void setFrameBudget(float frameBudget) {
+        this.frameBudgetNanos = (long) (frameBudget * 1_000_000);
+    }
+
+    /**
+     * Queues the construction of children of the given root entity.
+     *
+     * @param root     the trap root entity
+     * @param priority the priority of the children
+     * @param build    builds the children, it is passed the root entity
+     */
+    public void enqueue(EntityRef root, Priority priority, Consumer<EntityRef> build) {
+        pendingBuilds.get(priority).put(root, build);
+    }
+
+    /**
+     * Drops all pending builds of the given root entity.
+     *
+     * @param root the trap root entity
+     */
+    public void cancel(EntityRef root) {
+        for (Map<EntityRef, Consumer<EntityRef>> builds : pendingBuilds.values()) {
+            builds.remove(root);
+        }
+    }
+
+    /**
+     * Counts writes of root components done by the current build, e.g. saving the childrenEntities list.
+     *
+     * @param count the number of component writes
+     */
+    public void countComponentWrites(int count) {
+        buildComponentWrites += count;
+    }
+
+    /**
+     * Counts the child entities created by the current build.
+     *
+     * @param count the number of entities created
+     */
+    public void countEntitiesCreated(int count) {
+        buildCreatedEntities += count;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Map<EntityRef, Consumer<EntityRef>> builds : pendingBuilds.values()) {
+            size += builds.size();
+        }
+        return size;
+    }
+
+    @Override
+    public void update(float delta) {
+        if (size() == 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        frameBuilds = 0;
+        frameComponentWrites = 0;
+        frameCreatedEntities = 0;
+        runBuilds(start + frameBudgetNanos);
+        statistics.record(System.nanoTime() - start, frameBuilds, frameComponentWrites, frameCreatedEntities);
+    }
+
+    private void runBuilds(long deadline) {
+        boolean built = false;
+        for (Map<EntityRef, Consumer<EntityRef>> builds : pendingBuilds.values()) {
+            while (!builds.isEmpty()) {
+                if (built && System.nanoTime() > deadline) {
+                    return;
+                }
+                // Builds may enqueue or cancel other builds, so the next one is taken from a fresh iterator
+                Iterator<Map.Entry<EntityRef, Consumer<EntityRef>>> iterator = builds.entrySet().iterator();
+                Map.Entry<EntityRef, Consumer<EntityRef>> build = iterator.next();
+                iterator.remove();
+                if (build.getKey().isActive()) {
+                    runBuild(build.getKey(), build.getValue());
+                    built = true;
+                }
+            }
+        }
+    }
+
+    private void runBuild(EntityRef root, Consumer<EntityRef> build) {
+        long start = System.nanoTime();
+        buildComponentWrites = 0;
+        buildCreatedEntities = 0;
+        build.accept(root);
+        buildStatistics.record(System.nanoTime() - start, 1, buildComponentWrites, buildCreatedEntities);
+        frameBuilds++;
+        frameComponentWrites += buildComponentWrites;
+        frameCreatedEntities += buildCreatedEntities;
+    }
+
+    @Override
+    public void shutdown() {
+        for (Map<EntityRef, Consumer<EntityRef>> builds : pendingBuilds.values()) {
+            builds.clear();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.adventureassets.traps;
+
+/**
+ * Accumulates the frame time of an update system and decides in which frames a step of the trap simulation runs, so
+ * that the cost of the simulation does not grow with the frame rate.<br/>
+ * At most one step runs per frame. A step runs in the frame closest to its due time: once at least half a step has
+ * accumulated, the step runs and the time it ran early is carried over as a negative remainder. A frame rate equal to
+ * the step rate therefore runs a step every frame despite jitter in the frame times, instead of skipping frames that
+ * end just before a step is due. The poses of the traps are functions of the game time, so steps missed during a long
+ * frame are dropped instead of being simulated one after another.
+ */
+public class FixedTimestep {
+
+    private float accumulator;
+
+    /**
+     * Adds the time of a frame and checks whether a step is due.
+     *
+     * @param delta the time (in seconds) since the last engine update
+     * @param rate  the number of steps per second, or 0 to run a step every frame
+     * @return true if a step is to be run in this frame
+     */
+    public boolean advance(float delta, float rate) {
+        if (rate <= 0) {
+            accumulator = 0;
+            return true;
+        }
+        float stepLength = 1 / rate;
+        accumulator += delta;
+        if (accumulator < stepLength / 2) {
+            return false;
+        }
+        accumulator = (accumulator - stepLength) % stepLength;
+        return true;
+    }
+
+    public void reset() {
+        accumulator = 0;
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.adventureassets.traps;
+
+import org.terasology.math.geom.Quat4f;
+import org.terasology.math.geom.Vector3f;
+import org.terasology.math.geom.Vector3i;
+
+import java.util.Arrays;
+
+/**
+ * Writes the JSON of a component for a structure template, in the indented layout the structure template export uses.
+ * <br/>
+ * Names and values are appended to a single buffer as they are written, commas and indentation are placed
+ * automatically and strings are escaped. Vectors and quaternions are written as inline arrays. Floats are written in
+ * their shortest form, so whole numbers have no fraction.
+ * <pre>
+ * TemplateJsonWriter json = new TemplateJsonWriter();
+ * json.name("AddSwingingBlade").beginObject();
+ * json.name("swingingBladesToSpawn").beginArray();
+ * ...
+ * json.endArray();
+ * json.endObject();
+ * event.addJsonForComponent(json.toString(), AddSwingingBladeComponent.class);
+ * </pre>
+ */
+public class TemplateJsonWriter {
+
+    private static final String INDENT = "    ";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final StringBuilder out;
+    private final int baseIndentation;
+
+    private boolean[] emptyContainers = new boolean[8];
+    private int depth;
+    private boolean afterName;
+
+    /**
+     * Creates a writer for a component entry of a structure template, which is indented by one level.
+     */
+    public TemplateJsonWriter() {
+        this(256, 1);
+    }
+
+    /**
+     * @param capacity        the initial capacity of the buffer, in characters
+     * @param baseIndentation the number of levels by which the written JSON is indented
+     */
+    public TemplateJsonWriter(int capacity, int baseIndentation) {
+        this.out = new StringBuilder(capacity);
+        this.baseIndentation = baseIndentation;
+    }
+
+    public TemplateJsonWriter name(String name) {
+        beforeElement();
+        appendString(name);
+        out.append(": ");
+        afterName = true;
+        return this;
+    }
+
+    public TemplateJsonWriter beginObject() {
+        return open('{');
+    }
+
+    public TemplateJsonWriter endObject() {
+        return close('}');
+    }
+
+    public TemplateJsonWriter beginArray() {
+        return open('[');
+    }
+
+    public TemplateJsonWriter endArray() {
+        return close(']');
+    }
+
+    public TemplateJsonWriter value(String value) {
+        beforeValue();
+        if (value == null) {
+            out.append("null");
+        } else {
+            appendString(value);
+        }
+        return this;
+    }
+
+    public TemplateJsonWriter value(boolean value) {
+        beforeValue();
+        out.append(value);
+        return this;
+    }
+
+    public TemplateJsonWriter value(int value) {
+        beforeValue();
+        out.append(value);
+        return this;
+    }
+
+    public TemplateJsonWriter value(float value) {
+        beforeValue();
+        appendNumber(value);
+        return this;
+    }
+
+    public TemplateJsonWriter value(Vector3i value) {
+        beforeValue();
+        out.append('[').append(value.x).append(", ").append(value.y).append(", ").append(value.z).append(']');
+        return this;
+    }
+
+    public TemplateJsonWriter value(Vector3f value) {
+        beforeValue();
+        out.append('[');
+        appendNumber(value.x);
+        out.append(", ");
+        appendNumber(value.y);
+        out.append(", ");
+        appendNumber(value.z);
+        out.append(']');
+        return this;
+    }
+
+    public TemplateJsonWriter value(Quat4f value) {
+        beforeValue();
+        out.append('[');
+        appendNumber(value.x);
+        out.append(", ");
+        appendNumber(value.y);
+        out.append(", ");
+        appendNumber(value.z);
+        out.append(", ");
+        appendNumber(value.w);
+        out.append(']');
+        return this;
+    }
+
+    /**
+     * @return the JSON written so far
+     */
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+
+    private TemplateJsonWriter open(char bracket) {
+        beforeValue();
+        out.append(bracket);
+        depth++;
+        if (depth == emptyContainers.length) {
+            emptyContainers = Arrays.copyOf(emptyContainers, 2 * depth);
+        }
+        emptyContainers[depth] = true;
+        return this;
+    }
+
+    private TemplateJsonWriter close(char bracket) {
+        if (depth == 0) {
+            throw new IllegalStateException("No open object or array to close");
+        }
+        if (!emptyContainers[depth]) {
+            out.append('\n');
+            indent(depth - 1);
+        }
+        out.append(bracket);
+        depth--;
+        return this;
+    }
+
+    private void beforeValue() {
+        if (afterName) {
+            afterName = false;
+        } else {
+            beforeElement();
+        }
+    }
+
+    private void beforeElement() {
+        if (depth > 0) {
+            out.append(emptyContainers[depth] ? "\n" : ",\n");
+            emptyContainers[depth] = false;
+        } else if (out.length() > 0) {
+            out.append(",\n");
+        }
+        indent(depth);
+    }
+
+    private void indent(int level) {
+        for (int i = 0; i < baseIndentation + level; i++) {
+            out.append(INDENT);
+        }
+    }
+
+    /**
+     * Appends the float in its shortest form. JSON has no representation for NaN and infinity, so they are written
+     * as 0.
+     */
+    private void appendNumber(float value) {
+        if (Float.isNaN(value) || Float.isInfinite(value)) {
+            out.append('0');
+        } else if (value == (int) value) {
+            out.append((int) value);
+        } else {
+            out.append(value);
+        }
+    }
+
+    private void appendString(String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append("\\u00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xf]);
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
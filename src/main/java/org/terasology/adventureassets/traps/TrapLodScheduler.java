@@ -0,0 +1,165 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.adventureassets.traps;
+
+import com.google.common.collect.Sets;
+import org.terasology.entitySystem.entity.EntityRef;
+import org.terasology.logic.location.LocationComponent;
+import org.terasology.math.geom.Vector3f;
+import org.terasology.network.ClientComponent;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Decides how often a trap is animated, depending on its distance to the closest player.<br/>
+ * Traps within the near radius are updated every tick, traps within the relevance radius every
+ * {@code farUpdateInterval} ticks (staggered by their slot, so that the load is spread evenly over the ticks) and
+ * traps outside the relevance radius are not updated at all.<br/>
+ * The trap poses are a function of the game time only, so a trap that was skipped gets its correct pose as soon as
+ * a player comes close again.
+ */
+public class TrapLodScheduler {
+
+    /**
+     * Distance (in blocks) within which traps are updated every tick
+     */
+    public static final float DEFAULT_NEAR_RADIUS = 32f;
+
+    /**
+     * Distance (in blocks) beyond which traps are not updated
+     */
+    public static final float DEFAULT_RELEVANCE_RADIUS = 96f;
+
+    /**
+     * Number of ticks between two updates of a trap between the near and the relevance radius
+     */
+    public static final int DEFAULT_FAR_UPDATE_INTERVAL = 4;
+
+    private float nearRadiusSquared;
+    private float relevanceRadiusSquared;
+    private int farUpdateInterval;
+
+    private final Set<EntityRef> clients = Sets.newLinkedHashSet();
+
+    private float[] observers = new float[3 * 4];
+    private int observerCount;
+    private long tick;
+
+    public TrapLodScheduler() {
+        this(DEFAULT_NEAR_RADIUS, DEFAULT_RELEVANCE_RADIUS, DEFAULT_FAR_UPDATE_INTERVAL);
+    }
+
+    public TrapLodScheduler(float nearRadius, float relevanceRadius, int farUpdateInterval) {
+        setRadii(nearRadius, relevanceRadius);
+        setFarUpdateInterval(farUpdateInterval);
+    }
+
+    public void setRadii(float nearRadius, float relevanceRadius) {
+        this.nearRadiusSquared = nearRadius * nearRadius;
+        this.relevanceRadiusSquared = Math.max(nearRadius, relevanceRadius) * Math.max(nearRadius, relevanceRadius);
+    }
+
+    public void setFarUpdateInterval(int farUpdateInterval) {
+        this.farUpdateInterval = Math.max(1, farUpdateInterval);
+    }
+
+    /**
+     * Starts a new tick, forgetting the observers of the previous one.
+     */
+    public void beginTick() {
+        tick++;
+        observerCount = 0;
+    }
+
+    /**
+     * Adds a position from which traps are seen or touched in this tick.
+     *
+     * @param position the world position of a player
+     */
+    public void addObserver(Vector3f position) {
+        if (position == null) {
+            return;
+        }
+        if (3 * (observerCount + 1) > observers.length) {
+            observers = Arrays.copyOf(observers, observers.length * 2);
+        }
+        observers[3 * observerCount] = position.x;
+        observers[3 * observerCount + 1] = position.y;
+        observers[3 * observerCount + 2] = position.z;
+        observerCount++;
+    }
+
+    /**
+     * Starts tracking the client, whose character is added as an observer by {@link #addClientObservers()}.
+     *
+     * @param client an entity with a {@link ClientComponent}
+     */
+    public void addClient(EntityRef client) {
+        clients.add(client);
+    }
+
+    /**
+     * Stops tracking the client.
+     *
+     * @param client an entity with a {@link ClientComponent}
+     */
+    public void removeClient(EntityRef client) {
+        clients.remove(client);
+    }
+
+    /**
+     * Adds the characters of all tracked clients as observers. To be used on the authority.<br/>
+     * The clients are tracked from the lifecycle events of their {@link ClientComponent}, so no entity query is run
+     * per tick.
+     */
+    public void addClientObservers() {
+        for (EntityRef client : clients) {
+            ClientComponent clientComponent = client.getComponent(ClientComponent.class);
+            if (clientComponent == null) {
+                continue;
+            }
+            LocationComponent locationComponent = clientComponent.character.getComponent(LocationComponent.class);
+            if (locationComponent != null) {
+                addObserver(locationComponent.getWorldPosition());
+            }
+        }
+    }
+
+    /**
+     * Checks whether the trap at the given position is to be updated in this tick. Only reads the state of the tick.
+     *
+     * @param x    world position of the trap
+     * @param y    world position of the trap
+     * @param z    world position of the trap
+     * @param slot a number of the trap that stays the same as long as it is registered, e.g. its entity id, used
+     *             to stagger the updates of distant traps
+     * @return true if the trap is to be updated
+     */
+    public boolean shouldUpdate(float x, float y, float z, int slot) {
+        float closest = Float.MAX_VALUE;
+        for (int i = 0; i < observerCount; i++) {
+            float dx = observers[3 * i] - x;
+            float dy = observers[3 * i + 1] - y;
+            float dz = observers[3 * i + 2] - z;
+            closest = Math.min(closest, dx * dx + dy * dy + dz * dz);
+        }
+        if (closest <= nearRadiusSquared) {
+            return true;
+        }
+        return closest <= relevanceRadiusSquared && Math.floorMod(tick + slot, farUpdateInterval) == 0;
+    }
+}
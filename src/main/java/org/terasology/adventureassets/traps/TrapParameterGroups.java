@@ -0,0 +1,154 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.adventureassets.traps;
+
+import com.google.common.collect.Maps;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Map;
+
+/**
+ * Groups traps with identical motion parameters, so that their pose or fire time is computed once per group instead
+ * of once per trap.<br/>
+ * Every group has a dense index, which is reused once the last member of the group leaves it. Groups are maintained
+ * incrementally: a trap acquires the group of its parameters when it is registered and releases it when it is removed
+ * or its parameters change.
+ */
+public class TrapParameterGroups {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Map<Key, Integer> indices = Maps.newHashMap();
+    private final Deque<Integer> freeGroups = new ArrayDeque<>();
+    private final Key pairProbe = new Key(new float[2]);
+    private final Key tripleProbe = new Key(new float[3]);
+    private Key[] keys = new Key[INITIAL_CAPACITY];
+    private int[] memberCounts = new int[INITIAL_CAPACITY];
+    private int capacity;
+
+    /**
+     * Adds a member to the group of the given parameters, creating the group if it does not exist yet.
+     *
+     * @param first  the first motion parameter of the trap
+     * @param second the second motion parameter of the trap
+     * @return the index of the group
+     */
+    public int acquire(float first, float second) {
+        pairProbe.parameters[0] = first;
+        pairProbe.parameters[1] = second;
+        return acquire(pairProbe);
+    }
+
+    /**
+     * Adds a member to the group of the given parameters, creating the group if it does not exist yet.
+     *
+     * @param first  the first motion parameter of the trap
+     * @param second the second motion parameter of the trap
+     * @param third  the third motion parameter of the trap
+     * @return the index of the group
+     */
+    public int acquire(float first, float second, float third) {
+        tripleProbe.parameters[0] = first;
+        tripleProbe.parameters[1] = second;
+        tripleProbe.parameters[2] = third;
+        return acquire(tripleProbe);
+    }
+
+    /**
+     * Looks the group up with a reused probe key, so that the parameters are only copied when a new group is created.
+     */
+    private int acquire(Key probe) {
+        Integer group = indices.get(probe);
+        if (group == null) {
+            group = freeGroups.isEmpty() ? capacity++ : freeGroups.pop();
+            ensureCapacity(capacity);
+            Key key = new Key(probe.parameters.clone());
+            keys[group] = key;
+            indices.put(key, group);
+        }
+        memberCounts[group]++;
+        return group;
+    }
+
+    /**
+     * Removes a member from the group, freeing the group index once its last member left.
+     *
+     * @param group the index of the group
+     */
+    public void release(int group) {
+        if (--memberCounts[group] == 0) {
+            indices.remove(keys[group]);
+            keys[group] = null;
+            freeGroups.push(group);
+        }
+    }
+
+    public boolean isUsed(int group) {
+        return memberCounts[group] > 0;
+    }
+
+    /**
+     * @param group the index of a used group
+     * @return the parameters of the group, in the order they were acquired with. Must not be modified.
+     */
+    public float[] getParameters(int group) {
+        return keys[group].parameters;
+    }
+
+    /**
+     * @return an upper bound of the group indices, which may include unused indices
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    public void clear() {
+        indices.clear();
+        freeGroups.clear();
+        Arrays.fill(keys, 0, capacity, null);
+        Arrays.fill(memberCounts, 0, capacity, 0);
+        capacity = 0;
+    }
+
+    private void ensureCapacity(int newCapacity) {
+        if (newCapacity <= keys.length) {
+            return;
+        }
+        newCapacity = Math.max(newCapacity, keys.length * 2);
+        keys = Arrays.copyOf(keys, newCapacity);
+        memberCounts = Arrays.copyOf(memberCounts, newCapacity);
+    }
+
+    private static final class Key {
+        private final float[] parameters;
+
+        private Key(float[] parameters) {
+            this.parameters = parameters;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(parameters, ((Key) o).parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(parameters);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.adventureassets.traps;
+
+import org.terasology.entitySystem.systems.BaseComponentSystem;
+import org.terasology.entitySystem.systems.RegisterMode;
+import org.terasology.entitySystem.systems.RegisterSystem;
+import org.terasology.logic.console.commandSystem.annotations.Command;
+import org.terasology.logic.console.commandSystem.annotations.CommandParam;
+import org.terasology.logic.permission.PermissionManager;
+import org.terasology.registry.Share;
+
+/**
+ * Holds the rates at which the swinging blades and wipe outs are posed, and the smallest change of angle of a wipe
+ * out that is written, shared by the server and client systems of this process.<br/>
+ * On the authority the poses only need to be as fresh as the colliders the players touch, so they are simulated at a
+ * fixed rate, independent of the frame rate. Clients evaluate the poses themselves from the replicated settings and
+ * the synchronised game time. As each evaluated pose is exact for its frame, no interpolation between server steps is
+ * needed, and clients pose the traps every frame up to the client rate. On a listen server or in single player, the
+ * client systems pose the traps for all players and the server systems stay idle. The systems pace themselves with a
+ * {@link FixedTimestep} each.
+ */
+@RegisterSystem(RegisterMode.ALWAYS)
+@Share(TrapSimulationRates.class)
+public class TrapSimulationRates extends BaseComponentSystem {
+
+    /**
+     * Steps per second of the trap simulation on the authority
+     */
+    public static final float DEFAULT_SIMULATION_RATE = 20f;
+
+    /**
+     * Largest number of times per second the traps are posed on a client, 0 to pose them every frame so that the
+     * animation never judders against the display refresh rate
+     */
+    public static final float DEFAULT_CLIENT_RATE = 0f;
+
+    /**
+     * Smallest change of angle (in radians) of a wipe out that is written to its location
+     */
+    public static final float DEFAULT_WIPE_OUT_ANGLE_EPSILON = 0.001f;
+
+    private float simulationRate = DEFAULT_SIMULATION_RATE;
+    private float clientRate = DEFAULT_CLIENT_RATE;
+    private float wipeOutAngleEpsilon = DEFAULT_WIPE_OUT_ANGLE_EPSILON;
+
+    public float getSimulationRate() {
+        return simulationRate;
+    }
+
+    /**
+     * @param simulationRate steps per second of the trap simulation on the authority, or 0 to simulate every frame
+     */
+    public void setSimulationRate(float simulationRate) {
+        this.simulationRate = Math.max(0, simulationRate);
+    }
+
+    public float getClientRate() {
+        return clientRate;
+    }
+
+    /**
+     * @param clientRate largest number of times per second the traps are posed on a client, or 0 for every frame
+     */
+    public void setClientRate(float clientRate) {
+        this.clientRate = Math.max(0, clientRate);
+    }
+
+    public float getWipeOutAngleEpsilon() {
+        return wipeOutAngleEpsilon;
+    }
+
+    /**
+     * @param wipeOutAngleEpsilon smallest change of angle (in radians) of a wipe out that is written to its location,
+     *                            trading the precision of the pose against the number of location writes
+     */
+    public void setWipeOutAngleEpsilon(float wipeOutAngleEpsilon) {
+        this.wipeOutAngleEpsilon = Math.max(0, wipeOutAngleEpsilon);
+    }
+
+    @Command(shortDescription = "Sets the rate (in Hz) of the trap simulation on the server, 0 for every frame",
+            runOnServer = true, requiredPermission = PermissionManager.SERVER_MANAGEMENT_PERMISSION)
+    public String trapSimulationRate(@CommandParam("rate") float rate) {
+        setSimulationRate(rate);
+        return "Trap simulation rate set to " + simulationRate + " Hz";
+    }
+
+    @Command(shortDescription = "Sets the largest rate (in Hz) at which this client poses the traps, 0 for every frame",
+            requiredPermission = PermissionManager.NO_PERMISSION)
+    public String trapClientRate(@CommandParam("rate") float rate) {
+        setClientRate(rate);
+        return "Trap client rate set to " + clientRate + " Hz";
+    }
+
+    @Command(shortDescription = "Sets the smallest change of angle (in radians) of a wipe out that is written",
+            runOnServer = true, requiredPermission = PermissionManager.SERVER_MANAGEMENT_PERMISSION)
+    public String wipeOutAngleEpsilon(@CommandParam("epsilon") float epsilon) {
+        setWipeOutAngleEpsilon(epsilon);
+        return "Wipe out angle epsilon set to " + wipeOutAngleEpsilon + " rad";
+    }
+}
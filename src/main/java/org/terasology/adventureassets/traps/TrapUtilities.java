@@ -0,0 +1,55 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.adventureassets.traps;
+
+import org.terasology.math.geom.Quat4f;
+
+public final class TrapUtilities {
+
+    private TrapUtilities() {
+    }
+
+    /**
+     * Sets the quaternion to the rotation of the given yaw, pitch and roll, like
+     * {@link Quat4f#Quat4f(float, float, float)} does, so that a reused quaternion can be posed every tick without
+     * allocating a new one.
+     *
+     * @param rotation the quaternion to set
+     * @param yaw      rotation around the y axis (in radians)
+     * @param pitch    rotation around the x axis (in radians)
+     * @param roll     rotation around the z axis (in radians)
+     * @return the given quaternion
+     */
+    public static Quat4f setRotation(Quat4f rotation, float yaw, float pitch, float roll) {
+        double sinPitch = Math.sin(pitch * 0.5);
+        double cosPitch = Math.cos(pitch * 0.5);
+        double sinRoll = Math.sin(roll * 0.5);
+        double cosRoll = Math.cos(roll * 0.5);
+        double sinYaw = Math.sin(yaw * 0.5);
+        double cosYaw = Math.cos(yaw * 0.5);
+
+        double cosRollCosPitch = cosRoll * cosPitch;
+        double sinRollSinPitch = sinRoll * sinPitch;
+        double cosRollSinPitch = cosRoll * sinPitch;
+        double sinRollCosPitch = sinRoll * cosPitch;
+
+        rotation.set((float) (cosRollSinPitch * cosYaw + sinRollCosPitch * sinYaw),
+                (float) (cosRollCosPitch * sinYaw - sinRollSinPitch * cosYaw),
+                (float) (sinRollCosPitch * cosYaw - cosRollSinPitch * sinYaw),
+                (float) (cosRollCosPitch * cosYaw + sinRollSinPitch * sinYaw));
+        return rotation;
+    }
+}
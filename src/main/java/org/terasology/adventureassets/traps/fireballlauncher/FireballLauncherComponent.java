@@ -46,12 +46,6 @@ public class FireballLauncherComponent implements Component {
     @Replicate
     public float offset = 0f;
 
-    /**
-     * Last shot time
-     */
-    @Replicate
-    public float lastShotTime = 0f;
-
     /**
      * Direction to fire
      */
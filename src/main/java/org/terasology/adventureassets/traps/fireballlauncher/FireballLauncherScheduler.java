@@ -0,0 +1,169 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.adventureassets.traps.fireballlauncher;
+
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
+import org.terasology.adventureassets.traps.TrapParameterGroups;
+import org.terasology.entitySystem.entity.EntityRef;
+
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the fireball launchers in a min-heap ordered by the time of their next shot, so that every tick only the
+ * launchers which are due have to be looked at.<br/>
+ * Launchers with the same time period and offset fire at the same times, so they share a parameter group, which has a
+ * single entry in the heap. The fire decision is made once per group, and a due group is rescheduled to its next shot
+ * right away.<br/>
+ * Rescheduling or removing a group does not search the heap. The group's previous entry is just superseded and
+ * skipped once it reaches the top of the heap.<br/>
+ * The time of the last shot of every launcher is kept here as well. It is transient server state, so firing does not
+ * change the replicated {@link FireballLauncherComponent}. A launcher which joins a group after it already fired for
+ * the group's due shot, does not fire for that shot again.
+ */
+class FireballLauncherScheduler {
+
+    private final PriorityQueue<ScheduledShot> queue = new PriorityQueue<>();
+    private final TrapParameterGroups groups = new TrapParameterGroups();
+    private final Map<EntityRef, Integer> launcherGroups = Maps.newHashMap();
+    private final SetMultimap<Integer, EntityRef> groupMembers = LinkedHashMultimap.create();
+    private final Map<Integer, ScheduledShot> scheduledShots = Maps.newHashMap();
+    private final Map<EntityRef, Float> lastShotTimes = Maps.newHashMap();
+
+    /**
+     * Adds the launcher to the group of its time period and offset, leaving its previous group. A new group is
+     * scheduled to its first shot after the given game time.
+     *
+     * @param launcher   the fireball launcher root entity
+     * @param timePeriod the time (in seconds) between two shots of the launcher
+     * @param offset     the offset (in seconds) of the shots of the launcher
+     * @param gameTime   the current game time (in seconds)
+     */
+    void schedule(EntityRef launcher, float timePeriod, float offset, float gameTime) {
+        int group = groups.acquire(timePeriod, offset);
+        Integer previousGroup = launcherGroups.put(launcher, group);
+        if (previousGroup != null) {
+            leave(launcher, previousGroup);
+        }
+        groupMembers.put(group, launcher);
+        if (!scheduledShots.containsKey(group)) {
+            scheduleGroup(group, FireballLauncherUtilities.getNextFireTime(gameTime, timePeriod, offset));
+        }
+    }
+
+    void unschedule(EntityRef launcher) {
+        Integer group = launcherGroups.remove(launcher);
+        if (group != null) {
+            leave(launcher, group);
+        }
+    }
+
+    /**
+     * Forgets the launcher completely, including the time of its last shot.
+     *
+     * @param launcher the fireball launcher root entity
+     */
+    void remove(EntityRef launcher) {
+        unschedule(launcher);
+        lastShotTimes.remove(launcher);
+    }
+
+    void recordShot(EntityRef launcher, float gameTime) {
+        lastShotTimes.put(launcher, gameTime);
+    }
+
+    /**
+     * @param launcher the fireball launcher root entity
+     * @return the game time of the last shot of the launcher, or negative infinity if it did not fire yet
+     */
+    float getLastShotTime(EntityRef launcher) {
+        Float lastShotTime = lastShotTimes.get(launcher);
+        return lastShotTime != null ? lastShotTime : Float.NEGATIVE_INFINITY;
+    }
+
+    int size() {
+        return launcherGroups.size();
+    }
+
+    void clear() {
+        queue.clear();
+        groups.clear();
+        launcherGroups.clear();
+        groupMembers.clear();
+        scheduledShots.clear();
+        lastShotTimes.clear();
+    }
+
+    /**
+     * Collects the members of all groups which are due at the given game time and reschedules the groups to their
+     * next shot. Every launcher is returned at most once per call.
+     *
+     * @param gameTime the current game time (in seconds)
+     * @param dueLaunchers the list to which the due launchers are added
+     */
+    void pollDue(float gameTime, List<EntityRef> dueLaunchers) {
+        while (!queue.isEmpty() && queue.peek().fireTime < gameTime) {
+            ScheduledShot shot = queue.poll();
+            if (scheduledShots.get(shot.group) != shot) {
+                continue;
+            }
+            for (EntityRef launcher : groupMembers.get(shot.group)) {
+                if (getLastShotTime(launcher) < shot.fireTime) {
+                    dueLaunchers.add(launcher);
+                }
+            }
+            float[] parameters = groups.getParameters(shot.group);
+            scheduleGroup(shot.group,
+                    FireballLauncherUtilities.getNextFireTime(gameTime, parameters[0], parameters[1]));
+        }
+    }
+
+    private void leave(EntityRef launcher, int group) {
+        groupMembers.remove(group, launcher);
+        groups.release(group);
+        if (!groups.isUsed(group)) {
+            scheduledShots.remove(group);
+        }
+    }
+
+    private void scheduleGroup(int group, float fireTime) {
+        ScheduledShot shot = new ScheduledShot(group, fireTime);
+        scheduledShots.put(group, shot);
+        queue.add(shot);
+        if (queue.size() > 2 * scheduledShots.size() + 16) {
+            queue.clear();
+            queue.addAll(scheduledShots.values());
+        }
+    }
+
+    private static final class ScheduledShot implements Comparable<ScheduledShot> {
+        private final int group;
+        private final float fireTime;
+
+        private ScheduledShot(int group, float fireTime) {
+            this.group = group;
+            this.fireTime = fireTime;
+        }
+
+        @Override
+        public int compareTo(ScheduledShot other) {
+            return Float.compare(fireTime, other.fireTime);
+        }
+    }
+}
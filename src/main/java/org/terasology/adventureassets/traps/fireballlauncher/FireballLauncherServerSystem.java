@@ -15,13 +15,19 @@
  */
 package org.terasology.adventureassets.traps.fireballlauncher;
 
+import com.google.common.collect.Lists;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.terasology.assets.management.AssetManager;
+import org.terasology.adventureassets.PrefabCache;
+import org.terasology.adventureassets.TickStatistics;
 import org.terasology.engine.Time;
 import org.terasology.entitySystem.entity.EntityBuilder;
 import org.terasology.entitySystem.entity.EntityManager;
 import org.terasology.entitySystem.entity.EntityRef;
+import org.terasology.entitySystem.entity.lifecycleEvents.BeforeDeactivateComponent;
+import org.terasology.entitySystem.entity.lifecycleEvents.BeforeRemoveComponent;
+import org.terasology.entitySystem.entity.lifecycleEvents.OnActivatedComponent;
+import org.terasology.entitySystem.entity.lifecycleEvents.OnChangedComponent;
 import org.terasology.entitySystem.event.ReceiveEvent;
 import org.terasology.entitySystem.prefab.Prefab;
 import org.terasology.entitySystem.systems.BaseComponentSystem;
@@ -39,6 +45,8 @@ import org.terasology.world.block.items.BlockItemComponent;
 import org.terasology.world.block.items.OnBlockItemPlaced;
 import org.terasology.world.block.items.OnBlockToItem;
 
+import java.util.List;
+
 @RegisterSystem(RegisterMode.AUTHORITY)
 public class FireballLauncherServerSystem extends BaseComponentSystem implements UpdateSubscriberSystem {
 
@@ -49,7 +57,61 @@ public class FireballLauncherServerSystem extends BaseComponentSystem implements
     @In
     private Time time;
     @In
-    private AssetManager assetManager;
+    private PrefabCache prefabCache;
+    @In
+    private TickStatistics tickStatistics;
+
+    private final FireballLauncherScheduler scheduler = new FireballLauncherScheduler();
+    private final List<EntityRef> dueLaunchers = Lists.newArrayList();
+    private TickStatistics.SystemStatistics statistics;
+    private TickStatistics.SystemStatistics launchStatistics;
+
+    @Override
+    public void initialise() {
+        statistics = tickStatistics.register(FireballLauncherServerSystem.class.getSimpleName());
+        launchStatistics = tickStatistics.register(FireballLauncherServerSystem.class.getSimpleName() + ".launchFireball");
+    }
+
+    @Override
+    public void shutdown() {
+        scheduler.clear();
+    }
+
+    /**
+     * Schedules the next shot of a fireball launcher once it gets loaded.
+     *
+     * @param event
+     * @param entity
+     * @param fireballLauncherComponent
+     */
+    @ReceiveEvent(components = {BlockComponent.class})
+    public void onFireballLauncherActivated(OnActivatedComponent event, EntityRef entity,
+                                            FireballLauncherComponent fireballLauncherComponent) {
+        schedule(entity, fireballLauncherComponent);
+    }
+
+    /**
+     * Reschedules the next shot of a fireball launcher whenever its settings change.
+     *
+     * @param event
+     * @param entity
+     * @param fireballLauncherComponent
+     */
+    @ReceiveEvent(components = {BlockComponent.class})
+    public void onFireballLauncherChanged(OnChangedComponent event, EntityRef entity,
+                                          FireballLauncherComponent fireballLauncherComponent) {
+        schedule(entity, fireballLauncherComponent);
+    }
+
+    @ReceiveEvent(components = {FireballLauncherComponent.class, BlockComponent.class})
+    public void onFireballLauncherDeactivated(BeforeDeactivateComponent event, EntityRef entity) {
+        scheduler.remove(entity);
+    }
+
+    @ReceiveEvent(components = {FireballLauncherComponent.class, BlockComponent.class})
+    public void onFireballLauncherDestroyed(BeforeRemoveComponent event, EntityRef entity) {
+        scheduler.remove(entity);
+    }
 
     /**
      * Save the Fireball Launcher settings by saving the {@link FireballLauncherComponent}
@@ -99,36 +161,78 @@ public class FireballLauncherServerSystem extends BaseComponentSystem implements
     }
 
     /**
-     * Find all Fireball Launchers and trigger the launch of a Fireball if it is the right time
+     * Triggers the launch of a Fireball from all Fireball Launchers whose next shot is due.<br/>
+     * A launcher that missed several shots during a long frame fires once and then continues with its next regular
+     * shot, so it neither fires twice in a tick nor drifts relative to its offset. The scheduler already rescheduled
+     * the groups of the due launchers.
      *
      * @param delta The time (in seconds) since the last engine update.
      */
     @Override
     public void update(float delta) {
-        for (EntityRef fireballLauncher : entityManager.getEntitiesWith(FireballLauncherComponent.class, BlockComponent.class)) {
+        long start = System.nanoTime();
+        float gameTime = time.getGameTime();
+        int launched = 0;
+        scheduler.pollDue(gameTime, dueLaunchers);
+        for (EntityRef fireballLauncher : dueLaunchers) {
             FireballLauncherComponent fireballLauncherComponent = fireballLauncher.getComponent(FireballLauncherComponent.class);
-            if (fireballLauncherComponent.isFiring && time.getGameTime() > fireballLauncherComponent.timePeriod + fireballLauncherComponent.lastShotTime) {
-                Prefab fireballPrefab = assetManager.getAsset("Projectile:fireball", Prefab.class).get();
-                EntityBuilder fireballEntityBuilder = entityManager.newBuilder(fireballPrefab);
-                EntityRef fireball = fireballEntityBuilder.build();
-
-                ProjectileActionComponent projectileActionComponent = fireball.getComponent(ProjectileActionComponent.class);
-                projectileActionComponent.maxDistance = fireballLauncherComponent.maxDistance;
-                fireball.saveComponent(projectileActionComponent);
-
-                HealthComponent healthComponent = fireball.getComponent(HealthComponent.class);
-                healthComponent.maxHealth = fireballLauncherComponent.damageAmount;
-                healthComponent.currentHealth = fireballLauncherComponent.damageAmount;
-                fireball.saveComponent(healthComponent);
-
-                Vector3f pos = fireballLauncher.getComponent(LocationComponent.class).getWorldPosition();
-                fireball.send(new FireProjectileEvent(pos, fireballLauncherComponent.direction));
-
-                fireballLauncherComponent.lastShotTime = (float) Math.floor(time.getGameTime() / fireballLauncherComponent.timePeriod)
-                        * fireballLauncherComponent.timePeriod + fireballLauncherComponent.offset;
-                fireballLauncher.saveComponent(fireballLauncherComponent);
+            if (fireballLauncherComponent == null || !fireballLauncherComponent.isFiring) {
+                continue;
             }
+            long launchStart = System.nanoTime();
+            launchFireball(fireballLauncher, fireballLauncherComponent);
+            launchStatistics.record(System.nanoTime() - launchStart, 1, 0, 1);
+            launched++;
+            scheduler.recordShot(fireballLauncher, gameTime);
         }
+        statistics.record(System.nanoTime() - start, dueLaunchers.size(), 0, launched);
+        dueLaunchers.clear();
     }
-}
 
+    /**
+     * Schedules the launcher with the other launchers of its period and offset, or takes it off the schedule if it is
+     * not firing.<br/>
+     * The next shot is the first one of the launcher's period and offset after the current game time. The scheduler
+     * skips a launcher for a shot it already fired for, so changing the settings of a launcher never makes it fire
+     * twice at the same time.
+     *
+     * @param fireballLauncher          the fireball launcher root entity
+     * @param fireballLauncherComponent the settings of the fireball launcher
+     */
+    private void schedule(EntityRef fireballLauncher, FireballLauncherComponent fireballLauncherComponent) {
+        if (fireballLauncherComponent.isFiring && fireballLauncherComponent.timePeriod > 0) {
+            scheduler.schedule(fireballLauncher, fireballLauncherComponent.timePeriod, fireballLauncherComponent.offset,
+                    time.getGameTime());
+        } else {
+            scheduler.unschedule(fireballLauncher);
+        }
+    }
+
+    /**
+     * Builds a fireball and fires it from the launcher.<br/>
+     * The fireball is configured on its {@link EntityBuilder}, so that no component change events are sent for it
+     * after it has been built. The Projectile module owns the fireball from then on and destroys it once it hits
+     * something or has travelled its maximum distance.
+     *
+     * @param fireballLauncher          the fireball launcher root entity
+     * @param fireballLauncherComponent the settings of the fireball launcher
+     */
+    private void launchFireball(EntityRef fireballLauncher, FireballLauncherComponent fireballLauncherComponent) {
+        Prefab fireballPrefab = prefabCache.get(PrefabCache.FIREBALL);
+        if (fireballPrefab == null) {
+            return;
+        }
+        EntityBuilder fireballEntityBuilder = entityManager.newBuilder(fireballPrefab);
+
+        ProjectileActionComponent projectileActionComponent = fireballEntityBuilder.getComponent(ProjectileActionComponent.class);
+        projectileActionComponent.maxDistance = fireballLauncherComponent.maxDistance;
+
+        HealthComponent healthComponent = fireballEntityBuilder.getComponent(HealthComponent.class);
+        healthComponent.maxHealth = fireballLauncherComponent.damageAmount;
+        healthComponent.currentHealth = fireballLauncherComponent.damageAmount;
+
+        EntityRef fireball = fireballEntityBuilder.build();
+        Vector3f pos = fireballLauncher.getComponent(LocationComponent.class).getWorldPosition();
+        fireball.send(new FireProjectileEvent(pos, fireballLauncherComponent.direction));
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.adventureassets.traps.fireballlauncher;
+
+class FireballLauncherUtilities {
+
+    /**
+     * Computes the time of the next shot of a fireball launcher. A launcher fires at the times
+     * {@code k * timePeriod + offset}, so its shots never drift, however late a single shot is triggered.
+     *
+     * @param gameTime   the current game time (in seconds)
+     * @param timePeriod time between two shots (in seconds)
+     * @param offset     time offset of the shots (in seconds)
+     * @return the earliest shot time after the given game time (in seconds)
+     */
+    static float getNextFireTime(float gameTime, float timePeriod, float offset) {
+        double shot = Math.floor(((double) gameTime - offset) / timePeriod) * timePeriod + offset;
+        float nextFireTime = (float) (shot + timePeriod);
+        while (nextFireTime <= gameTime) {
+            nextFireTime += timePeriod;
+        }
+        return nextFireTime;
+    }
+}
@@ -17,13 +17,15 @@ package org.terasology.adventureassets.traps.fireballlauncher.structuretemplatei
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.terasology.adventureassets.TickStatistics;
+import org.terasology.adventureassets.traps.TemplateJsonWriter;
 import org.terasology.adventureassets.traps.fireballlauncher.FireballLauncherComponent;
 import org.terasology.entitySystem.entity.EntityRef;
 import org.terasology.entitySystem.event.ReceiveEvent;
+import org.terasology.entitySystem.prefab.Prefab;
 import org.terasology.entitySystem.systems.BaseComponentSystem;
 import org.terasology.entitySystem.systems.RegisterMode;
 import org.terasology.entitySystem.systems.RegisterSystem;
-import org.terasology.logic.location.LocationComponent;
 import org.terasology.math.Side;
 import org.terasology.math.geom.Quat4f;
 import org.terasology.math.geom.Vector3f;
@@ -33,7 +35,6 @@ import org.terasology.structureTemplates.events.BuildStructureTemplateEntityEven
 import org.terasology.structureTemplates.events.SpawnTemplateEvent;
 import org.terasology.structureTemplates.events.StructureBlocksSpawnedEvent;
 import org.terasology.structureTemplates.internal.events.BuildStructureTemplateStringEvent;
-import org.terasology.structureTemplates.util.ListUtil;
 import org.terasology.structureTemplates.util.transform.BlockRegionTransform;
 import org.terasology.world.BlockEntityRegistry;
 import org.terasology.world.block.BlockComponent;
@@ -51,16 +52,27 @@ public class FireballLauncherSTServerSystem extends BaseComponentSystem {
     BlockManager blockManager;
     @In
     BlockEntityRegistry blockEntityRegistry;
+    @In
+    TickStatistics tickStatistics;
+
+    private TickStatistics.SystemStatistics configureStatistics;
+    private TickStatistics.SystemStatistics captureStatistics;
+
+    @Override
+    public void initialise() {
+        configureStatistics = tickStatistics.register(FireballLauncherSTServerSystem.class.getSimpleName() + ".configure");
+        captureStatistics = tickStatistics.register(FireballLauncherSTServerSystem.class.getSimpleName() + ".capture");
+    }
 
     @ReceiveEvent
     public void onSpawnStructure(StructureBlocksSpawnedEvent event, EntityRef entity,
                                  AddFireballLauncherComponent addFireballLauncherComponent) {
-        configureFireballLaunchers(addFireballLauncherComponent, event.getTransformation());
+        configureFireballLaunchers(addFireballLauncherComponent, event.getTransformation(), entity);
     }
 
     @ReceiveEvent
     public void onSpawnTemplate(SpawnTemplateEvent event, EntityRef entity, AddFireballLauncherComponent addFireballLauncherComponent) {
-        configureFireballLaunchers(addFireballLauncherComponent, event.getTransformation());
+        configureFireballLaunchers(addFireballLauncherComponent, event.getTransformation(), entity);
     }
 
     /**
@@ -68,27 +80,49 @@ public class FireballLauncherSTServerSystem extends BaseComponentSystem {
      *
      * @param addFireballLauncherComponent
      * @param transformation
+     * @param template the structure template entity, the spawn time is reported per template
      */
-    private void configureFireballLaunchers(AddFireballLauncherComponent addFireballLauncherComponent, BlockRegionTransform transformation) {
-        for (AddFireballLauncherComponent.FireballLauncherToSpawn f : addFireballLauncherComponent.fireballLaunchersToSpawn) {
-            Vector3i absolutePosition = transformation.transformVector3i(f.position);
-            EntityRef fireballLauncher = blockEntityRegistry.getBlockEntityAt(absolutePosition);
+    private void configureFireballLaunchers(AddFireballLauncherComponent addFireballLauncherComponent, BlockRegionTransform transformation,
+                                            EntityRef template) {
+        long startTime = System.nanoTime();
+        int configured = 0;
+        List<AddFireballLauncherComponent.FireballLauncherToSpawn> fireballLaunchersToSpawn = addFireballLauncherComponent.fireballLaunchersToSpawn;
+        Side front = transformation.transformSide(Side.FRONT);
+        for (AddFireballLauncherComponent.FireballLauncherToSpawn f : fireballLaunchersToSpawn) {
+            Vector3i position = transformation.transformVector3i(f.position);
+            EntityRef fireballLauncher = blockEntityRegistry.getBlockEntityAt(position);
             FireballLauncherComponent fireballLauncherComponent = fireballLauncher.getComponent(FireballLauncherComponent.class);
+            if (fireballLauncherComponent == null) {
+                logger.warn("No fireball launcher found at {} while spawning a structure", position);
+                continue;
+            }
             fireballLauncherComponent.isFiring = f.isFiring;
             fireballLauncherComponent.timePeriod = f.timePeriod;
             fireballLauncherComponent.offset = f.offset;
-            fireballLauncherComponent.direction = convertDirectionToAbsolute(f.direction, transformation.transformSide(Side.FRONT));
+            fireballLauncherComponent.direction = convertDirectionToAbsolute(f.direction, front);
             fireballLauncherComponent.maxDistance = f.maxDistance;
             fireballLauncherComponent.damageAmount = f.damageAmount;
             fireballLauncher.saveComponent(fireballLauncherComponent);
-            LocationComponent locationComponent = fireballLauncher.getComponent(LocationComponent.class);
-            fireballLauncher.addOrSaveComponent(locationComponent);
+            configured++;
+        }
+        getConfigureStatistics(template).record(System.nanoTime() - startTime, fireballLaunchersToSpawn.size(), configured, 0);
+    }
 
+    /**
+     * Returns the statistics into which configuring the traps of the given structure template is recorded, so that the
+     * spawn time is reported for every template.
+     */
+    private TickStatistics.SystemStatistics getConfigureStatistics(EntityRef template) {
+        Prefab prefab = template.getParentPrefab();
+        if (prefab == null) {
+            return configureStatistics;
         }
+        return tickStatistics.register(FireballLauncherSTServerSystem.class.getSimpleName() + ".configure." + prefab.getName());
     }
 
     @ReceiveEvent
     public void onBuildTemplateWithScheduledStructurePlacement(BuildStructureTemplateEntityEvent event, EntityRef entity) {
+        long startTime = System.nanoTime();
         BlockRegionTransform transformToRelative = event.getTransformToRelative();
         BlockFamily blockFamily = blockManager.getBlockFamily("AdventureAssets:FireballLauncherRoot");
 
@@ -116,6 +150,7 @@ public class FireballLauncherSTServerSystem extends BaseComponentSystem {
             addFireballLauncherComponent.fireballLaunchersToSpawn = fireballLaunchersToSpawn;
             event.getTemplateEntity().addOrSaveComponent(addFireballLauncherComponent);
         }
+        captureStatistics.record(System.nanoTime() - startTime, fireballLaunchersToSpawn.size(), fireballLaunchersToSpawn.isEmpty() ? 0 : 1, 0);
     }
 
     private Vector3f convertDirectionToRelative(Vector3f direction, Side side) {
@@ -169,49 +204,22 @@ public class FireballLauncherSTServerSystem extends BaseComponentSystem {
     @ReceiveEvent
     public void onBuildTemplateStringWithBlockRegions(BuildStructureTemplateStringEvent event, EntityRef template,
                                                       AddFireballLauncherComponent component) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("    \"AddFireballLauncher\": {\n");
-        sb.append("        \"fireballLaunchersToSpawn\": [\n");
-        ListUtil.visitList(component.fireballLaunchersToSpawn,
-                (AddFireballLauncherComponent.FireballLauncherToSpawn fireballLauncher, boolean last) -> {
-                    sb.append("            {\n");
-                    sb.append("                \"position\": [");
-                    sb.append(fireballLauncher.position.x);
-                    sb.append(", ");
-                    sb.append(fireballLauncher.position.y);
-                    sb.append(", ");
-                    sb.append(fireballLauncher.position.z);
-                    sb.append("],\n");
-                    sb.append("                \"isFiring\": ");
-                    sb.append(fireballLauncher.isFiring);
-                    sb.append(",\n");
-                    sb.append("                \"timePeriod\": ");
-                    sb.append(fireballLauncher.timePeriod);
-                    sb.append(",\n");
-                    sb.append("                \"offset\": ");
-                    sb.append(fireballLauncher.offset);
-                    sb.append(",\n");
-                    sb.append("                \"direction\": [");
-                    sb.append(fireballLauncher.direction.x);
-                    sb.append(", ");
-                    sb.append(fireballLauncher.direction.y);
-                    sb.append(", ");
-                    sb.append(fireballLauncher.direction.z);
-                    sb.append("],\n");
-                    sb.append("                \"maxDistance\": ");
-                    sb.append(fireballLauncher.maxDistance);
-                    sb.append(",\n");
-                    sb.append("                \"damageAmount\": ");
-                    sb.append(fireballLauncher.damageAmount);
-                    sb.append("\n");
-                    if (last) {
-                        sb.append("            }\n");
-                    } else {
-                        sb.append("            },\n");
-                    }
-                });
-        sb.append("        ]\n");
-        sb.append("    }");
-        event.addJsonForComponent(sb.toString(), AddFireballLauncherComponent.class);
+        TemplateJsonWriter json = new TemplateJsonWriter();
+        json.name("AddFireballLauncher").beginObject();
+        json.name("fireballLaunchersToSpawn").beginArray();
+        for (AddFireballLauncherComponent.FireballLauncherToSpawn fireballLauncher : component.fireballLaunchersToSpawn) {
+            json.beginObject();
+            json.name("position").value(fireballLauncher.position);
+            json.name("isFiring").value(fireballLauncher.isFiring);
+            json.name("timePeriod").value(fireballLauncher.timePeriod);
+            json.name("offset").value(fireballLauncher.offset);
+            json.name("direction").value(fireballLauncher.direction);
+            json.name("maxDistance").value(fireballLauncher.maxDistance);
+            json.name("damageAmount").value(fireballLauncher.damageAmount);
+            json.endObject();
+        }
+        json.endArray();
+        json.endObject();
+        event.addJsonForComponent(json.toString(), AddFireballLauncherComponent.class);
     }
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.adventureassets.traps.passwordDoor;
+
+/**
+ * Limits the rate of password attempts of a single player. Every attempt takes a token; tokens are refilled at a fixed
+ * rate up to the capacity of the bucket, so a player can try a few passwords in a row but not many per minute.
+ */
+class AttemptTokenBucket {
+
+    private final float capacity;
+    private final float refillPerMs;
+
+    private float tokens;
+    private long lastRefillTime;
+
+    /**
+     * @param capacity       the maximum number of attempts in a row
+     * @param refillInterval time (in milliseconds) after which a further attempt is allowed
+     * @param now            the current time (in milliseconds)
+     */
+    AttemptTokenBucket(int capacity, long refillInterval, long now) {
+        this.capacity = capacity;
+        this.refillPerMs = 1f / refillInterval;
+        this.tokens = capacity;
+        this.lastRefillTime = now;
+    }
+
+    /**
+     * @param now the current time (in milliseconds)
+     * @return true if a token is available, without taking it
+     */
+    boolean hasToken(long now) {
+        refill(now);
+        return tokens >= 1;
+    }
+
+    /**
+     * Takes a token if one is available.
+     *
+     * @param now the current time (in milliseconds)
+     * @return true if the attempt is allowed
+     */
+    boolean tryTake(long now) {
+        refill(now);
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+    /**
+     * @param now the current time (in milliseconds)
+     * @return true if the bucket is full again, so it does not need to be kept
+     */
+    boolean isFull(long now) {
+        refill(now);
+        return tokens >= capacity;
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(capacity, tokens + (now - lastRefillTime) * refillPerMs);
+        lastRefillTime = now;
+    }
+}
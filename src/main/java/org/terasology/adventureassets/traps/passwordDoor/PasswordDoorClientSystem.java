@@ -35,19 +35,37 @@ import org.terasology.worldlyTooltipAPI.events.GetTooltipNameEvent;
 @RegisterSystem(RegisterMode.CLIENT)
 public class PasswordDoorClientSystem extends BaseComponentSystem {
 
+    private static final String PASSWORD_DOOR_SCREEN = "AdventureAssets:passwordDoorScreen";
+
     @In
     LocalPlayer localPlayer;
     @In
     NUIManager nuiManager;
 
+    private PasswordDoorScreen passwordDoorScreen;
+
     @ReceiveEvent
     public void openPasswordDoorRequest(OpenPasswordDoorRequest event, EntityRef player) {
         if (player.equals(localPlayer.getCharacterEntity())) {
-            PasswordDoorScreen passwordDoorScreen = nuiManager.pushScreen("AdventureAssets:passwordDoorScreen", PasswordDoorScreen.class);
+            passwordDoorScreen = nuiManager.pushScreen(PASSWORD_DOOR_SCREEN, PasswordDoorScreen.class);
             passwordDoorScreen.setDoorEntity(event.getDoorEntity());
         }
     }
 
+    /**
+     * Passes the answer of the authority to the password screen, if it is still open for the same door.
+     *
+     * @param event
+     * @param player
+     */
+    @ReceiveEvent
+    public void onUnlockPasswordDoorResult(UnlockPasswordDoorResult event, EntityRef player) {
+        if (player.equals(localPlayer.getCharacterEntity()) && passwordDoorScreen != null
+                && nuiManager.isOpen(PASSWORD_DOOR_SCREEN) && event.getDoorEntity().equals(passwordDoorScreen.getDoorEntity())) {
+            passwordDoorScreen.onUnlockResult(event);
+        }
+    }
+
     @ReceiveEvent(components = {PasswordDoorComponent.class})
     public void onDoorPlaced(DoorPlacedEvent event, EntityRef entity) {
         if (event.getInstigator().equals(localPlayer.getCharacterEntity())) {
@@ -20,12 +20,33 @@ import org.terasology.entitySystem.Component;
 import org.terasology.network.Replicate;
 import org.terasology.world.block.ForceBlockActive;
 
+/**
+ * This component holds the data for a Password Door.<br/>
+ * Only the title and the message are replicated. The password is checked by the authority, which stores it as a
+ * salted hash.
+ */
 @ForceBlockActive
 public class PasswordDoorComponent implements Component {
     @Replicate
     public String title = "title";
     @Replicate
     public String message = "message";
-    @Replicate
+
+    /**
+     * Plain text password of doors which have not been set up yet, or were saved before passwords got hashed.
+     * It is replaced by the hash the first time the door is unlocked.
+     */
     public String password = "password";
+
+    /**
+     * Salted hash of the password, see {@link PasswordDoorUtilities#hash(String, String, int)}
+     */
+    public String passwordHash = "";
+
+    /**
+     * Number of times {@link #passwordHash} was hashed
+     */
+    public int hashIterations = PasswordDoorUtilities.HASH_ITERATIONS;
+
+    public String salt = "";
 }
@@ -15,7 +15,6 @@
  */
 package org.terasology.adventureassets.traps.passwordDoor;
 
-import org.terasology.core.logic.door.OpenDoorEvent;
 import org.terasology.entitySystem.entity.EntityRef;
 import org.terasology.logic.players.LocalPlayer;
 import org.terasology.registry.In;
@@ -34,8 +33,7 @@ public class PasswordDoorScreen extends CoreScreenLayer {
     private UIButton unlockButton;
 
     private EntityRef doorEntity;
-    private PasswordDoorComponent passwordDoorComponent;
-    private String passwordString;
+    private String invalidText;
 
     @In
     private LocalPlayer localPlayer;
@@ -45,6 +43,7 @@ public class PasswordDoorScreen extends CoreScreenLayer {
         title = find("title", UILabel.class);
         message = find("message", UILabel.class);
         invalid = find("invalid", UILabel.class);
+        invalidText = invalid.getText();
         password = find("password", UIText.class);
         unlockButton = find("unlock", UIButton.class);
 
@@ -55,20 +54,35 @@ public class PasswordDoorScreen extends CoreScreenLayer {
 
     void setDoorEntity(EntityRef door) {
         doorEntity = door;
-        passwordDoorComponent = doorEntity.getComponent(PasswordDoorComponent.class);
+        PasswordDoorComponent passwordDoorComponent = doorEntity.getComponent(PasswordDoorComponent.class);
         title.setText(passwordDoorComponent.title);
         message.setText("" + passwordDoorComponent.message);
         password.setText("");
         invalid.setVisible(false);
-        passwordString = passwordDoorComponent.password;
     }
 
+    EntityRef getDoorEntity() {
+        return doorEntity;
+    }
+
+    /**
+     * Sends the entered password to the authority, which opens the door if it is correct.
+     */
     private void onUnlockButton(UIWidget button) {
-        String enteredPassword = password.getText();
-        if (enteredPassword.equalsIgnoreCase(passwordString)) {
-            localPlayer.getCharacterEntity().send(new OpenDoorEvent(doorEntity));
+        invalid.setVisible(false);
+        localPlayer.getCharacterEntity().send(new UnlockPasswordDoorRequest(doorEntity, password.getText()));
+    }
+
+    /**
+     * Closes the screen if the door got unlocked and tells the player why otherwise.
+     *
+     * @param result the answer of the authority
+     */
+    void onUnlockResult(UnlockPasswordDoorResult result) {
+        if (result.isUnlocked()) {
             getManager().popScreen();
         } else {
+            invalid.setText(result.isThrottled() ? "Too many attempts, try again later!" : invalidText);
             invalid.setVisible(true);
         }
     }
@@ -16,31 +16,98 @@
 
 package org.terasology.adventureassets.traps.passwordDoor;
 
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Table;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.adventureassets.TickStatistics;
 import org.terasology.core.logic.door.CloseDoorEvent;
 import org.terasology.core.logic.door.DoorComponent;
+import org.terasology.core.logic.door.OpenDoorEvent;
+import org.terasology.engine.Time;
 import org.terasology.entitySystem.entity.EntityRef;
 import org.terasology.entitySystem.event.EventPriority;
 import org.terasology.entitySystem.event.ReceiveEvent;
 import org.terasology.entitySystem.systems.BaseComponentSystem;
 import org.terasology.entitySystem.systems.RegisterMode;
 import org.terasology.entitySystem.systems.RegisterSystem;
+import org.terasology.entitySystem.systems.UpdateSubscriberSystem;
 import org.terasology.logic.common.ActivateEvent;
 import org.terasology.logic.location.LocationComponent;
+import org.terasology.network.ClientComponent;
+import org.terasology.network.events.DisconnectedEvent;
 import org.terasology.registry.In;
 import org.terasology.rendering.nui.NUIManager;
 import org.terasology.world.BlockEntityRegistry;
 import org.terasology.world.WorldProvider;
 import org.terasology.world.block.regions.BlockRegionComponent;
 
+import java.util.Iterator;
+import java.util.Map;
+
 @RegisterSystem(RegisterMode.AUTHORITY)
-public class PasswordDoorServerSystem extends BaseComponentSystem {
+public class PasswordDoorServerSystem extends BaseComponentSystem implements UpdateSubscriberSystem {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordDoorServerSystem.class);
+
+    /**
+     * Number of password attempts a player may make in a row, and the time (in milliseconds) after which a further
+     * attempt is allowed
+     */
+    private static final int ATTEMPT_BURST = 5;
+    private static final long ATTEMPT_REFILL_INTERVAL = 2000;
+
+    /**
+     * Number of password checks all players together may make in a row, and the time (in milliseconds) after which a
+     * further check is allowed, bounding the time the main thread spends hashing passwords
+     */
+    private static final int SERVER_CHECK_BURST = 20;
+    private static final long SERVER_CHECK_REFILL_INTERVAL = 100;
 
+    /**
+     * Time (in milliseconds) for which a player who entered the correct password can open the door again with the
+     * same password without hashing it
+     */
+    private static final long VERIFIED_EXPIRY = 60000;
+    private static final long PRUNE_INTERVAL = 10000;
+
+    @In
+    private Time time;
     @In
     private WorldProvider worldProvider;
     @In
     private BlockEntityRegistry blockEntityRegistry;
     @In
     private NUIManager nuiManager;
+    @In
+    private TickStatistics tickStatistics;
+
+    private final Map<EntityRef, AttemptTokenBucket> attemptBuckets = Maps.newHashMap();
+    private final Table<EntityRef, EntityRef, VerifiedPassword> verifiedPasswords = HashBasedTable.create();
+    private AttemptTokenBucket serverCheckBucket;
+    private String digestKey;
+    private EntityRef doorBeingOpened = EntityRef.NULL;
+    private long nextPruneTime;
+    private TickStatistics.SystemStatistics statistics;
+    private TickStatistics.SystemStatistics verifyStatistics;
+    private TickStatistics.SystemStatistics rejectStatistics;
+
+    @Override
+    public void initialise() {
+        serverCheckBucket = new AttemptTokenBucket(SERVER_CHECK_BURST, SERVER_CHECK_REFILL_INTERVAL,
+                time.getGameTimeInMs());
+        digestKey = PasswordDoorUtilities.newSalt();
+        statistics = tickStatistics.register(PasswordDoorServerSystem.class.getSimpleName());
+        verifyStatistics = tickStatistics.register(PasswordDoorServerSystem.class.getSimpleName() + ".verify");
+        rejectStatistics = tickStatistics.register(PasswordDoorServerSystem.class.getSimpleName() + ".reject");
+    }
+
+    @Override
+    public void shutdown() {
+        attemptBuckets.clear();
+        verifiedPasswords.clear();
+    }
 
     @ReceiveEvent(priority = EventPriority.PRIORITY_HIGH,
             components = {DoorComponent.class, PasswordDoorComponent.class, BlockRegionComponent.class, LocationComponent.class})
@@ -54,13 +121,174 @@ public class PasswordDoorServerSystem extends BaseComponentSystem {
         }
     }
 
+    /**
+     * Keeps password doors from being opened by an {@link OpenDoorEvent} that was not sent by {@link #openDoor}, e.g.
+     * one a client sent directly to skip the password.
+     *
+     * @param event
+     * @param character
+     */
+    @ReceiveEvent(priority = EventPriority.PRIORITY_HIGH)
+    public void onOpenDoor(OpenDoorEvent event, EntityRef character) {
+        EntityRef doorEntity = event.getDoorEntity();
+        if (doorEntity.hasComponent(PasswordDoorComponent.class) && !doorEntity.equals(doorBeingOpened)) {
+            event.consume();
+        }
+    }
+
+    /**
+     * Stores the settings of a password door. The password is only stored as a salted hash.
+     *
+     * @param event
+     * @param entity
+     */
     @ReceiveEvent
     public void setPasswordDoor(SetPasswordDoorEvent event, EntityRef entity) {
         EntityRef doorEntity = event.getDoorEntity();
         PasswordDoorComponent passwordDoorComponent = new PasswordDoorComponent();
         passwordDoorComponent.title = event.getTitle();
         passwordDoorComponent.message = event.getMessage();
-        passwordDoorComponent.password = event.getPassword();
+        passwordDoorComponent.password = "";
+        passwordDoorComponent.salt = PasswordDoorUtilities.newSalt();
+        passwordDoorComponent.passwordHash = PasswordDoorUtilities.hash(event.getPassword(), passwordDoorComponent.salt);
+        passwordDoorComponent.hashIterations = PasswordDoorUtilities.HASH_ITERATIONS;
         doorEntity.addOrSaveComponent(passwordDoorComponent);
+        verifiedPasswords.column(doorEntity).clear();
+    }
+
+    /**
+     * Checks the password a player entered for a password door and opens the door if it is correct. The result is sent
+     * back to the player.<br/>
+     * A player who entered the same correct password recently is let through after comparing a cheap keyed digest of
+     * it, without hashing it again. Otherwise the password is hashed right away. Each player has only a few attempts in
+     * a row, and all players together only a few checks per second; further attempts are rejected as throttled without
+     * checking them. A player's attempt is only counted if the server has a check left, so a player does not lose
+     * attempts to other players.
+     *
+     * @param event
+     * @param character the character of the player
+     */
+    @ReceiveEvent
+    public void onUnlockPasswordDoor(UnlockPasswordDoorRequest event, EntityRef character) {
+        EntityRef doorEntity = event.getDoorEntity();
+        PasswordDoorComponent passwordDoorComponent = doorEntity.getComponent(PasswordDoorComponent.class);
+        String password = event.getPassword();
+        if (passwordDoorComponent == null || password == null) {
+            return;
+        }
+
+        EntityRef player = character.getOwner().exists() ? character.getOwner() : character;
+        long now = time.getGameTimeInMs();
+        String digest = PasswordDoorUtilities.digest(password, digestKey);
+        VerifiedPassword verifiedPassword = verifiedPasswords.get(player, doorEntity);
+        if (verifiedPassword != null && now < verifiedPassword.expiry
+                && PasswordDoorUtilities.constantTimeEquals(digest, verifiedPassword.digest)) {
+            openDoor(character, doorEntity);
+            return;
+        }
+
+        AttemptTokenBucket attemptBucket = attemptBuckets.get(player);
+        if (attemptBucket == null) {
+            attemptBucket = new AttemptTokenBucket(ATTEMPT_BURST, ATTEMPT_REFILL_INTERVAL, now);
+            attemptBuckets.put(player, attemptBucket);
+        }
+        if (!serverCheckBucket.hasToken(now) || !attemptBucket.tryTake(now)) {
+            reject(character, doorEntity);
+            return;
+        }
+        serverCheckBucket.tryTake(now);
+
+        long start = System.nanoTime();
+        boolean saved = false;
+        boolean correct;
+        if (passwordDoorComponent.passwordHash.isEmpty()) {
+            correct = password.equalsIgnoreCase(passwordDoorComponent.password);
+        } else {
+            correct = PasswordDoorUtilities.matches(password, passwordDoorComponent.salt,
+                    passwordDoorComponent.passwordHash, passwordDoorComponent.hashIterations);
+        }
+        // Plain text passwords are replaced by their hash once the password is known
+        if (correct && passwordDoorComponent.passwordHash.isEmpty()) {
+            passwordDoorComponent.salt = PasswordDoorUtilities.newSalt();
+            passwordDoorComponent.passwordHash = PasswordDoorUtilities.hash(password, passwordDoorComponent.salt);
+            passwordDoorComponent.hashIterations = PasswordDoorUtilities.HASH_ITERATIONS;
+            passwordDoorComponent.password = "";
+            doorEntity.saveComponent(passwordDoorComponent);
+            saved = true;
+        }
+        verifyStatistics.record(System.nanoTime() - start, 1, saved ? 1 : 0, 0);
+
+        if (correct) {
+            verifiedPasswords.put(player, doorEntity, new VerifiedPassword(digest, now + VERIFIED_EXPIRY));
+            openDoor(character, doorEntity);
+        } else {
+            character.send(new UnlockPasswordDoorResult(doorEntity, false, false));
+        }
+    }
+
+    @ReceiveEvent(components = {ClientComponent.class})
+    public void onDisconnect(DisconnectedEvent event, EntityRef client) {
+        attemptBuckets.remove(client);
+        verifiedPasswords.row(client).clear();
+    }
+
+    /**
+     * Forgets expired state now and then.
+     *
+     * @param delta The time (in seconds) since the last engine update.
+     */
+    @Override
+    public void update(float delta) {
+        long now = time.getGameTimeInMs();
+        if (now < nextPruneTime) {
+            return;
+        }
+        long start = System.nanoTime();
+        int visited = verifiedPasswords.size() + attemptBuckets.size();
+        prune(now);
+        nextPruneTime = now + PRUNE_INTERVAL;
+        statistics.record(System.nanoTime() - start, visited, 0, 0);
+    }
+
+    private void openDoor(EntityRef character, EntityRef doorEntity) {
+        if (character.exists()) {
+            doorBeingOpened = doorEntity;
+            try {
+                character.send(new OpenDoorEvent(doorEntity));
+            } finally {
+                doorBeingOpened = EntityRef.NULL;
+            }
+            character.send(new UnlockPasswordDoorResult(doorEntity, true, false));
+        }
+    }
+
+    private void reject(EntityRef character, EntityRef doorEntity) {
+        long start = System.nanoTime();
+        logger.debug("Rejected password attempt for {} by {}", doorEntity, character);
+        character.send(new UnlockPasswordDoorResult(doorEntity, false, true));
+        rejectStatistics.record(System.nanoTime() - start, 1, 0, 0);
+    }
+
+    private void prune(long now) {
+        verifiedPasswords.values().removeIf(verifiedPassword -> verifiedPassword.expiry <= now);
+        Iterator<AttemptTokenBucket> buckets = attemptBuckets.values().iterator();
+        while (buckets.hasNext()) {
+            if (buckets.next().isFull(now)) {
+                buckets.remove();
+            }
+        }
+    }
+
+    /**
+     * A password a player entered correctly, kept as a keyed digest so that it can be compared without hashing it
+     */
+    private static final class VerifiedPassword {
+        private final String digest;
+        private final long expiry;
+
+        private VerifiedPassword(String digest, long expiry) {
+            this.digest = digest;
+            this.expiry = expiry;
+        }
     }
 }
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.adventureassets.traps.passwordDoor;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.UUID;
+
+class PasswordDoorUtilities {
+
+    /**
+     * Number of times the password is hashed, to make guessing it from a stored hash expensive while keeping a check
+     * cheap enough for the main thread
+     */
+    static final int HASH_ITERATIONS = 1000;
+
+    private static final HashFunction SHA_256 = Hashing.sha256();
+
+    /**
+     * @return a new random salt
+     */
+    static String newSalt() {
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * Computes the salted and iterated SHA-256 hash of a password with the current {@link #HASH_ITERATIONS}.
+     *
+     * @param password the password
+     * @param salt     the salt of the door
+     * @return the hash, hex encoded
+     */
+    static String hash(String password, String salt) {
+        return hash(password, salt, HASH_ITERATIONS);
+    }
+
+    /**
+     * Computes the salted and iterated SHA-256 hash of a password. Passwords are not case sensitive, so the password
+     * is lower cased before it is hashed.
+     *
+     * @param password   the password
+     * @param salt       the salt of the door
+     * @param iterations the number of times the password is hashed
+     * @return the hash, hex encoded
+     */
+    static String hash(String password, String salt, int iterations) {
+        byte[] saltBytes = salt.getBytes(StandardCharsets.UTF_8);
+        HashCode hash = SHA_256.newHasher()
+                .putBytes(saltBytes)
+                .putString(password.toLowerCase(Locale.ROOT), StandardCharsets.UTF_8)
+                .hash();
+        for (int i = 1; i < iterations; i++) {
+            hash = SHA_256.newHasher().putBytes(hash.asBytes()).putBytes(saltBytes).hash();
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Checks the password against a stored hash.
+     *
+     * @param password   the entered password
+     * @param salt       the salt of the door
+     * @param hash       the stored hash
+     * @param iterations the number of times the stored hash was hashed
+     * @return true if the password matches
+     */
+    static boolean matches(String password, String salt, String hash, int iterations) {
+        return constantTimeEquals(hash(password, salt, iterations), hash);
+    }
+
+    /**
+     * Computes a single SHA-256 hash of a password, keyed with a secret of the server. It is cheap, so it is only
+     * suitable to recognise a password that was already checked, and is never stored.
+     *
+     * @param password the password
+     * @param key      the secret of the server
+     * @return the digest, hex encoded
+     */
+    static String digest(String password, String key) {
+        return SHA_256.newHasher()
+                .putString(key, StandardCharsets.UTF_8)
+                .putString(password.toLowerCase(Locale.ROOT), StandardCharsets.UTF_8)
+                .hash()
+                .toString();
+    }
+
+    /**
+     * Compares two hex encoded hashes in the same time wherever they differ.
+     *
+     * @return true if the hashes are equal
+     */
+    static boolean constantTimeEquals(String a, String b) {
+        int difference = a.length() ^ b.length();
+        for (int i = 0; i < Math.min(a.length(), b.length()); i++) {
+            difference |= a.charAt(i) ^ b.charAt(i);
+        }
+        return difference == 0;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.adventureassets.traps.passwordDoor;
+
+import org.terasology.entitySystem.entity.EntityRef;
+import org.terasology.entitySystem.event.Event;
+import org.terasology.network.ServerEvent;
+
+/**
+ * Sent by a client to its character to have the authority check the password entered for a password door.
+ */
+@ServerEvent
+public class UnlockPasswordDoorRequest implements Event {
+    private EntityRef doorEntity;
+    private String password;
+
+    public UnlockPasswordDoorRequest() {
+        doorEntity = EntityRef.NULL;
+    }
+
+    public UnlockPasswordDoorRequest(EntityRef doorEntity, String password) {
+        this.doorEntity = doorEntity;
+        this.password = password;
+    }
+
+    public EntityRef getDoorEntity() {
+        return doorEntity;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+}
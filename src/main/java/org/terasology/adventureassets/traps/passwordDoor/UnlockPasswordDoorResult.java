@@ -0,0 +1,58 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.adventureassets.traps.passwordDoor;
+
+import org.terasology.entitySystem.entity.EntityRef;
+import org.terasology.entitySystem.event.Event;
+import org.terasology.network.OwnerEvent;
+
+/**
+ * Tells the client whether the password it entered for a password door was accepted.
+ */
+@OwnerEvent
+public class UnlockPasswordDoorResult implements Event {
+    private EntityRef doorEntity;
+    private boolean unlocked;
+    private boolean throttled;
+
+    public UnlockPasswordDoorResult() {
+        doorEntity = EntityRef.NULL;
+    }
+
+    /**
+     * @param doorEntity the password door
+     * @param unlocked   whether the password was correct and the door got opened
+     * @param throttled  whether the attempt was rejected without checking the password, since the player tried too
+     *                   often
+     */
+    public UnlockPasswordDoorResult(EntityRef doorEntity, boolean unlocked, boolean throttled) {
+        this.doorEntity = doorEntity;
+        this.unlocked = unlocked;
+        this.throttled = throttled;
+    }
+
+    public EntityRef getDoorEntity() {
+        return doorEntity;
+    }
+
+    public boolean isUnlocked() {
+        return unlocked;
+    }
+
+    public boolean isThrottled() {
+        return throttled;
+    }
+}
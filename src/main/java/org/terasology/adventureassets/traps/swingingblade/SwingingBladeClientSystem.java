@@ -15,14 +15,24 @@
  */
 package org.terasology.adventureassets.traps.swingingblade;
 
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.terasology.assets.management.AssetManager;
+import org.terasology.adventureassets.PrefabCache;
+import org.terasology.adventureassets.TickStatistics;
+import org.terasology.adventureassets.traps.ChildEntityBuildQueue;
+import org.terasology.adventureassets.traps.FixedTimestep;
+import org.terasology.adventureassets.traps.TrapLodScheduler;
+import org.terasology.adventureassets.traps.TrapSimulationRates;
 import org.terasology.engine.Time;
 import org.terasology.entitySystem.entity.EntityBuilder;
 import org.terasology.entitySystem.entity.EntityManager;
 import org.terasology.entitySystem.entity.EntityRef;
+import org.terasology.entitySystem.entity.lifecycleEvents.BeforeDeactivateComponent;
+import org.terasology.entitySystem.entity.lifecycleEvents.BeforeRemoveComponent;
 import org.terasology.entitySystem.entity.lifecycleEvents.OnActivatedComponent;
+import org.terasology.entitySystem.entity.lifecycleEvents.OnChangedComponent;
 import org.terasology.entitySystem.event.ReceiveEvent;
 import org.terasology.entitySystem.prefab.Prefab;
 import org.terasology.entitySystem.systems.BaseComponentSystem;
@@ -30,12 +40,19 @@ import org.terasology.entitySystem.systems.RegisterMode;
 import org.terasology.entitySystem.systems.RegisterSystem;
 import org.terasology.entitySystem.systems.UpdateSubscriberSystem;
 import org.terasology.logic.location.Location;
+import org.terasology.logic.location.LocationComponent;
+import org.terasology.logic.players.LocalPlayer;
 import org.terasology.math.geom.Quat4f;
 import org.terasology.math.geom.Vector3f;
+import org.terasology.network.ClientComponent;
+import org.terasology.network.NetworkSystem;
 import org.terasology.registry.In;
 import org.terasology.world.block.BlockComponent;
 import org.terasology.world.block.items.OnBlockToItem;
 
+import java.util.Map;
+import java.util.Set;
+
 @RegisterSystem(RegisterMode.CLIENT)
 public class SwingingBladeClientSystem extends BaseComponentSystem implements UpdateSubscriberSystem {
 
@@ -44,12 +61,94 @@ public class SwingingBladeClientSystem extends BaseComponentSystem implements Up
     @In
     private EntityManager entityManager;
     @In
-    private AssetManager assetManager;
+    private PrefabCache prefabCache;
+    @In
+    private ChildEntityBuildQueue childEntityBuildQueue;
+    @In
+    private TickStatistics tickStatistics;
+    @In
+    private TrapSimulationRates trapSimulationRates;
     @In
     private Time time;
+    @In
+    private NetworkSystem networkSystem;
+    @In
+    private LocalPlayer localPlayer;
+
+    private final SwingingBladeRegistry swingingBladeRegistry = new SwingingBladeRegistry();
+    private final TrapLodScheduler lodScheduler = new TrapLodScheduler();
+    private final FixedTimestep timestep = new FixedTimestep();
+    private TickStatistics.SystemStatistics statistics;
+
+    /**
+     * The root entities whose mesh entity is built or queued
+     */
+    private final Set<EntityRef> meshedRoots = Sets.newHashSet();
+
+    /**
+     * The placeholder mesh entities shown in place of the queued mesh entities, by root entity
+     */
+    private final Map<EntityRef, EntityRef> placeholders = Maps.newHashMap();
+
+    @Override
+    public void initialise() {
+        statistics = tickStatistics.register(SwingingBladeClientSystem.class.getSimpleName());
+    }
+
+    @Override
+    public void postBegin() {
+        for (EntityRef client : entityManager.getEntitiesWith(ClientComponent.class)) {
+            lodScheduler.addClient(client);
+        }
+    }
+
+    /**
+     * Tracks the connected clients, whose characters decide which blades are updated when this client is also the
+     * authority.
+     *
+     * @param event
+     * @param client
+     */
+    @ReceiveEvent(components = {ClientComponent.class})
+    public void onClientActivated(OnActivatedComponent event, EntityRef client) {
+        lodScheduler.addClient(client);
+    }
+
+    @ReceiveEvent(components = {ClientComponent.class})
+    public void onClientDeactivated(BeforeDeactivateComponent event, EntityRef client) {
+        lodScheduler.removeClient(client);
+    }
+
+    @ReceiveEvent(components = {SwingingBladeComponent.class, LocationComponent.class, BlockComponent.class})
+    public void onSwingingBladeDestroyed(BeforeRemoveComponent event, EntityRef entity) {
+        childEntityBuildQueue.cancel(entity);
+        meshedRoots.remove(entity);
+        removePlaceholder(entity);
+        swingingBladeRegistry.remove(entity);
+    }
+
+    @ReceiveEvent(components = {SwingingBladeComponent.class, BlockComponent.class})
+    public void onSwingingBladeDeactivated(BeforeDeactivateComponent event, EntityRef entity) {
+        childEntityBuildQueue.cancel(entity);
+        meshedRoots.remove(entity);
+        removePlaceholder(entity);
+        swingingBladeRegistry.remove(entity);
+    }
 
     /**
-     * This method creates the mesh entity when the {@link SwingingBladeComponent} is activated. The rod and blade
+     * Keeps the cached motion parameters of a swinging blade up to date when its settings or base rotation change.
+     *
+     * @param event
+     * @param entity
+     */
+    @ReceiveEvent(components = {SwingingBladeComponent.class, LocationComponent.class, BlockComponent.class})
+    public void onSwingingBladeChanged(OnChangedComponent event, EntityRef entity) {
+        swingingBladeRegistry.refresh(entity);
+        queueMesh(entity);
+    }
+
+    /**
+     * This method queues the creation of the mesh entity when the {@link SwingingBladeComponent} is activated. The rod and blade
      * entities are saved in the childrenEntities list inside the {@link SwingingBladeComponent}.
      * A similar method in the {@link SwingingBladeServerSystem} adds the rod and blade entities to the
      * childrenEntities list.<br/>
@@ -65,23 +164,103 @@ public class SwingingBladeClientSystem extends BaseComponentSystem implements Up
     @ReceiveEvent(components = {SwingingBladeComponent.class, BlockComponent.class})
     public void onSwingingBladeActivated(OnActivatedComponent event, EntityRef entity,
                                          SwingingBladeComponent swingingBladeComponent) {
+        queueMesh(entity);
+        swingingBladeRegistry.register(entity);
+    }
+
+    /**
+     * Queues the construction of the mesh entity, once the root entity has the children built by the server.
+     * Until the mesh exists, the trap is shown as a lightweight placeholder mesh, so that it does not pop into view
+     * when the queue catches up.
+     *
+     * @param entity the root entity
+     */
+    private void queueMesh(EntityRef entity) {
+        SwingingBladeComponent swingingBladeComponent = entity.getComponent(SwingingBladeComponent.class);
         // So that only the relevant server entity (which gets modified by the server system already) is operated on.
-        if (!swingingBladeComponent.childrenEntities.isEmpty()) {
-            Prefab swingingBladePrefab = assetManager.getAsset("AdventureAssets:swingingBladeMesh", Prefab.class).get();
-            EntityBuilder swingingBladeEntityBuilder = entityManager.newBuilder(swingingBladePrefab);
-            swingingBladeEntityBuilder.setOwner(entity);
-            swingingBladeEntityBuilder.setPersistent(false);
-            EntityRef swingingBladeMesh = swingingBladeEntityBuilder.build();
-            swingingBladeComponent.childrenEntities.add(swingingBladeMesh);
-            entity.saveComponent(swingingBladeComponent);
-            Location.attachChild(entity, swingingBladeMesh, new Vector3f(0, -1, 0), new Quat4f(Quat4f.IDENTITY));
+        if (swingingBladeComponent == null || swingingBladeComponent.childrenEntities.isEmpty() || !meshedRoots.add(entity)) {
+            return;
+        }
+        showPlaceholder(entity);
+        childEntityBuildQueue.enqueue(entity, ChildEntityBuildQueue.Priority.MESH, this::buildMesh);
+    }
+
+    /**
+     * Builds the placeholder mesh entity of the root entity and attaches it where the mesh entity will be attached.
+     * The placeholder is a single box, which is cheap enough to be built outside of the build queue.
+     *
+     * @param entity the root entity
+     */
+    private void showPlaceholder(EntityRef entity) {
+        Prefab placeholderPrefab = prefabCache.get(PrefabCache.SWINGING_BLADE_PLACEHOLDER);
+        if (placeholderPrefab == null) {
+            return;
+        }
+        EntityBuilder placeholderBuilder = entityManager.newBuilder(placeholderPrefab);
+        placeholderBuilder.setOwner(entity);
+        placeholderBuilder.setPersistent(false);
+        EntityRef placeholder = placeholderBuilder.build();
+        Location.attachChild(entity, placeholder, new Vector3f(0, -1, 0), new Quat4f(Quat4f.IDENTITY));
+        placeholders.put(entity, placeholder);
+    }
+
+    private void removePlaceholder(EntityRef entity) {
+        EntityRef placeholder = placeholders.remove(entity);
+        if (placeholder != null) {
+            placeholder.destroy();
+        }
+    }
+
+    /**
+     * Builds the swinging blade mesh entity of the root entity and attaches it to it.
+     *
+     * @param entity the root entity
+     */
+    private void buildMesh(EntityRef entity) {
+        SwingingBladeComponent swingingBladeComponent = entity.getComponent(SwingingBladeComponent.class);
+        if (swingingBladeComponent == null) {
+            return;
+        }
+        Prefab swingingBladePrefab = prefabCache.get(PrefabCache.SWINGING_BLADE_MESH);
+        if (swingingBladePrefab == null) {
+            return;
         }
+        EntityBuilder swingingBladeEntityBuilder = entityManager.newBuilder(swingingBladePrefab);
+        swingingBladeEntityBuilder.setOwner(entity);
+        swingingBladeEntityBuilder.setPersistent(false);
+        EntityRef swingingBladeMesh = swingingBladeEntityBuilder.build();
+        swingingBladeComponent.childrenEntities.add(swingingBladeMesh);
+        entity.saveComponent(swingingBladeComponent);
+        childEntityBuildQueue.countComponentWrites(1);
+        childEntityBuildQueue.countEntitiesCreated(1);
+        Location.attachChild(entity, swingingBladeMesh, new Vector3f(0, -1, 0), new Quat4f(Quat4f.IDENTITY));
+        removePlaceholder(entity);
     }
 
+    /**
+     * Evaluates the pose of the swinging blades locally, at a rate depending on their distance to the local player.
+     * The server does not replicate the blade rotation, since it is a pure function of the game time and the
+     * replicated {@link SwingingBladeComponent}. The pose is written into the location of the blade in place, which
+     * the mesh renderer picks up in the same frame, so animating the blades sends no entity events.<br/>
+     * The blades are posed at most at the client rate. When this client is also the authority, the
+     * {@link SwingingBladeServerSystem} leaves the posing to this system, which then poses the blades close to any
+     * connected player, so that they are posed once per frame and animated smoothly.
+     *
+     * @param delta The time (in seconds) since the last engine update.
+     */
     @Override
     public void update(float delta) {
-        for (EntityRef blade : entityManager.getEntitiesWith(SwingingBladeComponent.class, BlockComponent.class)) {
-            SwingingBladeUtilities.rotateSwingingBlade(blade, time.getGameTime());
+        if (!timestep.advance(delta, trapSimulationRates.getClientRate())) {
+            return;
+        }
+        long start = System.nanoTime();
+        lodScheduler.beginTick();
+        if (networkSystem.getMode().isAuthority()) {
+            lodScheduler.addClientObservers();
+        } else {
+            lodScheduler.addObserver(localPlayer.getPosition());
         }
+        swingingBladeRegistry.rotateAll(time.getGameTime(), lodScheduler);
+        statistics.record(System.nanoTime() - start, swingingBladeRegistry.size(), 0, 0);
     }
 }
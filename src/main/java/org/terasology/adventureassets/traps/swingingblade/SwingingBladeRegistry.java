@@ -0,0 +1,202 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.adventureassets.traps.swingingblade;
+
+import com.google.common.collect.Maps;
+import org.terasology.adventureassets.traps.TrapLodScheduler;
+import org.terasology.adventureassets.traps.TrapParameterGroups;
+import org.terasology.adventureassets.traps.TrapUtilities;
+import org.terasology.entitySystem.entity.EntityRef;
+import org.terasology.logic.location.LocationComponent;
+import org.terasology.math.geom.Quat4f;
+import org.terasology.math.geom.Vector3f;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Keeps the motion parameters of all active swinging blade roots in flat primitive arrays, so that the per-tick
+ * animation loop needs neither an entity query nor a component lookup.<br/>
+ * Entries are added and refreshed from the lifecycle events of the {@link SwingingBladeComponent} and removed with
+ * swap-remove, so the arrays always stay dense.<br/>
+ * Blades with the same time period, amplitude and offset swing in unison, so they share a parameter group and the
+ * pitch is evaluated once per group. The pitches are evaluated into a buffer first and applied to the entities
+ * afterwards.
+ */
+class SwingingBladeRegistry {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Map<EntityRef, Integer> indices = Maps.newHashMap();
+
+    /**
+     * Scratch rotation, copied into the {@link LocationComponent} by {@link LocationComponent#setLocalRotation}
+     */
+    private final Quat4f scratchRotation = new Quat4f();
+    private final TrapParameterGroups motionGroups = new TrapParameterGroups();
+
+    private EntityRef[] entities = new EntityRef[INITIAL_CAPACITY];
+    private LocationComponent[] locations = new LocationComponent[INITIAL_CAPACITY];
+    private int[] groups = new int[INITIAL_CAPACITY];
+    private int[] slots = new int[INITIAL_CAPACITY];
+    private float[] yaws = new float[INITIAL_CAPACITY];
+    private float[] rolls = new float[INITIAL_CAPACITY];
+    private boolean[] swinging = new boolean[INITIAL_CAPACITY];
+    private float[] positions = new float[3 * INITIAL_CAPACITY];
+    private float[] groupPitches = new float[INITIAL_CAPACITY];
+    private boolean[] scheduled = new boolean[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Adds the swinging blade root to the registry, or re-reads its parameters if it is already registered.
+     *
+     * @param blade the swinging blade root entity
+     */
+    void register(EntityRef blade) {
+        SwingingBladeComponent swingingBladeComponent = blade.getComponent(SwingingBladeComponent.class);
+        LocationComponent locationComponent = blade.getComponent(LocationComponent.class);
+        if (swingingBladeComponent == null || locationComponent == null) {
+            remove(blade);
+            return;
+        }
+        // The new group is acquired before the old one is released, so unchanged parameters keep their group
+        int group = motionGroups.acquire(swingingBladeComponent.timePeriod, swingingBladeComponent.amplitude,
+                swingingBladeComponent.offset);
+        Integer index = indices.get(blade);
+        if (index == null) {
+            ensureCapacity(size + 1);
+            index = size++;
+            indices.put(blade, index);
+            entities[index] = blade;
+            slots[index] = (int) blade.getId();
+        } else {
+            motionGroups.release(groups[index]);
+        }
+        groups[index] = group;
+        Quat4f rotation = locationComponent.getLocalRotation();
+        Vector3f position = locationComponent.getWorldPosition();
+        locations[index] = locationComponent;
+        positions[3 * index] = position.x;
+        positions[3 * index + 1] = position.y;
+        positions[3 * index + 2] = position.z;
+        yaws[index] = rotation.getYaw();
+        rolls[index] = rotation.getRoll();
+        swinging[index] = swingingBladeComponent.isSwinging;
+    }
+
+    /**
+     * Re-reads the parameters of the swinging blade root, if it is registered.
+     *
+     * @param blade the swinging blade root entity
+     */
+    void refresh(EntityRef blade) {
+        if (indices.containsKey(blade)) {
+            register(blade);
+        }
+    }
+
+    void remove(EntityRef blade) {
+        Integer index = indices.remove(blade);
+        if (index == null) {
+            return;
+        }
+        motionGroups.release(groups[index]);
+        int last = --size;
+        if (index != last) {
+            entities[index] = entities[last];
+            locations[index] = locations[last];
+            groups[index] = groups[last];
+            slots[index] = slots[last];
+            yaws[index] = yaws[last];
+            rolls[index] = rolls[last];
+            swinging[index] = swinging[last];
+            System.arraycopy(positions, 3 * last, positions, 3 * index, 3);
+            indices.put(entities[index], index);
+        }
+        entities[last] = null;
+        locations[last] = null;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Rotates the registered swinging blades that the scheduler selects to their pose at the given game time.<br/>
+     * The pose is written into the {@link LocationComponent} in place. The physics engine reads the location of the
+     * kinematic blade collider every step and the mesh renderer reads the location of the mesh every frame, so both
+     * follow the pose, but no change event is fired and nothing is replicated. Clients evaluate the same pose from the
+     * replicated {@link SwingingBladeComponent} and the synchronised game time.
+     *
+     * @param gameTime     the current game time (in seconds)
+     * @param lodScheduler decides which blades are updated in this tick
+     */
+    void rotateAll(float gameTime, TrapLodScheduler lodScheduler) {
+        int groupCount = motionGroups.capacity();
+        if (groupPitches.length < groupCount) {
+            groupPitches = new float[Math.max(groupCount, 2 * groupPitches.length)];
+        }
+        evaluateGroups(gameTime, groupCount);
+        schedule(lodScheduler);
+
+        for (int i = 0; i < size; i++) {
+            if (scheduled[i]) {
+                TrapUtilities.setRotation(scratchRotation, yaws[i], groupPitches[groups[i]], rolls[i]);
+                locations[i].setLocalRotation(scratchRotation);
+            }
+        }
+    }
+
+    /**
+     * Evaluates the pitches of the used parameter groups into the buffer.
+     */
+    private void evaluateGroups(float gameTime, int groupCount) {
+        for (int group = 0; group < groupCount; group++) {
+            if (motionGroups.isUsed(group)) {
+                float[] parameters = motionGroups.getParameters(group);
+                groupPitches[group] = SwingingBladeUtilities.getPitch(gameTime, parameters[0], parameters[1],
+                        parameters[2]);
+            }
+        }
+    }
+
+    /**
+     * Decides which of the blades are updated in this tick.
+     */
+    private void schedule(TrapLodScheduler lodScheduler) {
+        for (int i = 0; i < size; i++) {
+            scheduled[i] = swinging[i]
+                    && lodScheduler.shouldUpdate(positions[3 * i], positions[3 * i + 1], positions[3 * i + 2],
+                            slots[i]);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= entities.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, entities.length * 2);
+        entities = Arrays.copyOf(entities, newCapacity);
+        locations = Arrays.copyOf(locations, newCapacity);
+        groups = Arrays.copyOf(groups, newCapacity);
+        slots = Arrays.copyOf(slots, newCapacity);
+        yaws = Arrays.copyOf(yaws, newCapacity);
+        rolls = Arrays.copyOf(rolls, newCapacity);
+        swinging = Arrays.copyOf(swinging, newCapacity);
+        positions = Arrays.copyOf(positions, 3 * newCapacity);
+        scheduled = Arrays.copyOf(scheduled, newCapacity);
+    }
+}
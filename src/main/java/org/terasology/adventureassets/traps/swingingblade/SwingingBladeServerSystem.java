@@ -18,13 +18,20 @@ package org.terasology.adventureassets.traps.swingingblade;
 import com.google.common.collect.Lists;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.terasology.assets.management.AssetManager;
+import org.terasology.adventureassets.PrefabCache;
+import org.terasology.adventureassets.TickStatistics;
+import org.terasology.adventureassets.traps.ChildEntityBuildQueue;
+import org.terasology.adventureassets.traps.FixedTimestep;
+import org.terasology.adventureassets.traps.TrapLodScheduler;
+import org.terasology.adventureassets.traps.TrapSimulationRates;
 import org.terasology.engine.Time;
 import org.terasology.entitySystem.entity.EntityBuilder;
 import org.terasology.entitySystem.entity.EntityManager;
 import org.terasology.entitySystem.entity.EntityRef;
+import org.terasology.entitySystem.entity.lifecycleEvents.BeforeDeactivateComponent;
 import org.terasology.entitySystem.entity.lifecycleEvents.BeforeRemoveComponent;
 import org.terasology.entitySystem.entity.lifecycleEvents.OnActivatedComponent;
+import org.terasology.entitySystem.entity.lifecycleEvents.OnChangedComponent;
 import org.terasology.entitySystem.event.EventPriority;
 import org.terasology.entitySystem.event.ReceiveEvent;
 import org.terasology.entitySystem.prefab.Prefab;
@@ -37,6 +44,8 @@ import org.terasology.logic.location.Location;
 import org.terasology.logic.location.LocationComponent;
 import org.terasology.math.geom.Quat4f;
 import org.terasology.math.geom.Vector3f;
+import org.terasology.network.ClientComponent;
+import org.terasology.network.NetworkSystem;
 import org.terasology.registry.In;
 import org.terasology.world.block.BlockComponent;
 import org.terasology.world.block.items.BlockItemComponent;
@@ -51,15 +60,77 @@ public class SwingingBladeServerSystem extends BaseComponentSystem implements Up
     @In
     private EntityManager entityManager;
     @In
-    private AssetManager assetManager;
+    private PrefabCache prefabCache;
+    @In
+    private ChildEntityBuildQueue childEntityBuildQueue;
+    @In
+    private TickStatistics tickStatistics;
+    @In
+    private TrapSimulationRates trapSimulationRates;
     @In
     private InventoryManager inventoryManager;
     @In
+    private NetworkSystem networkSystem;
+    @In
     private Time time;
 
+    private final SwingingBladeRegistry swingingBladeRegistry = new SwingingBladeRegistry();
+    private final TrapLodScheduler lodScheduler = new TrapLodScheduler();
+    private final FixedTimestep timestep = new FixedTimestep();
+    private TickStatistics.SystemStatistics statistics;
+    private TickStatistics.SystemStatistics buildCollidersStatistics;
+
+    @Override
+    public void initialise() {
+        statistics = tickStatistics.register(SwingingBladeServerSystem.class.getSimpleName());
+        buildCollidersStatistics = tickStatistics.register(SwingingBladeServerSystem.class.getSimpleName() + ".buildColliders");
+    }
+
+    @Override
+    public void postBegin() {
+        for (EntityRef client : entityManager.getEntitiesWith(ClientComponent.class)) {
+            lodScheduler.addClient(client);
+        }
+    }
+
+    /**
+     * Tracks the connected clients, whose characters decide which blades are updated.
+     *
+     * @param event
+     * @param client
+     */
+    @ReceiveEvent(components = {ClientComponent.class})
+    public void onClientActivated(OnActivatedComponent event, EntityRef client) {
+        lodScheduler.addClient(client);
+    }
+
+    @ReceiveEvent(components = {ClientComponent.class})
+    public void onClientDeactivated(BeforeDeactivateComponent event, EntityRef client) {
+        lodScheduler.removeClient(client);
+    }
+
     @ReceiveEvent(components = {SwingingBladeComponent.class, LocationComponent.class, BlockComponent.class})
     public void onSwingingBladeDestroyed(BeforeRemoveComponent event, EntityRef entity,
                                          SwingingBladeComponent swingingBladeComponent) {
+        childEntityBuildQueue.cancel(entity);
+        swingingBladeRegistry.remove(entity);
+    }
+
+    @ReceiveEvent(components = {SwingingBladeComponent.class, BlockComponent.class})
+    public void onSwingingBladeDeactivated(BeforeDeactivateComponent event, EntityRef entity) {
+        childEntityBuildQueue.cancel(entity);
+        swingingBladeRegistry.remove(entity);
+    }
+
+    /**
+     * Keeps the cached motion parameters of a swinging blade up to date when its settings or base rotation change.
+     *
+     * @param event
+     * @param entity
+     */
+    @ReceiveEvent(components = {SwingingBladeComponent.class, LocationComponent.class, BlockComponent.class})
+    public void onSwingingBladeChanged(OnChangedComponent event, EntityRef entity) {
+        swingingBladeRegistry.refresh(entity);
     }
 
     /**
@@ -67,8 +138,8 @@ public class SwingingBladeServerSystem extends BaseComponentSystem implements Up
      * Note that this method is called after the OnActivatedComponent event handler
      * {@link SwingingBladeServerSystem#onSwingingBladeActivated(OnActivatedComponent, EntityRef, SwingingBladeComponent)}
      * filtering the {@link SwingingBladeComponent} gets executed.
-     * So the placedBlock entity already has the right childrenEntities and only needs the trap properties to be
-     * transferred.
+     * So the placedBlock entity already has the childrenEntities built so far, and only needs the trap properties to be
+     * transferred. Children whose construction is still queued are added to the component afterwards.
      *
      * @param event
      * @param itemEntity
@@ -105,13 +176,14 @@ public class SwingingBladeServerSystem extends BaseComponentSystem implements Up
     }
 
     /**
-     * This method creates the rod and blade entities when the {@link SwingingBladeComponent} is activated. The rod and blade
-     * entities are saved in the childrenEntities list inside the {@link SwingingBladeComponent}.
+     * This method queues the creation of the rod and blade entities when the {@link SwingingBladeComponent} is activated. The
+     * {@link ChildEntityBuildQueue} builds them within the next frames and saves them in the childrenEntities list
+     * inside the {@link SwingingBladeComponent}, so that activating many traps at once does not build all of their children
+     * in one frame.
      * A similar method in the {@link SwingingBladeClientSystem} adds the mesh entity to the childrenEntities list.<br/>
-     * Note this happens before the block is actually placed in the world i.e. before the OnBlockItemPlacedEvent handler-
-     * {@link SwingingBladeServerSystem#onBlockToItem(OnBlockToItem, EntityRef, SwingingBladeComponent)} gets called.
-     * So, the saved properties (amplitude, time-period, offset etc) are transferred after this, maintaining
-     * only the childrenEntities list created here.
+     * The saved properties (amplitude, time-period, offset etc) are transferred by the OnBlockItemPlacedEvent handler right after this. The
+     * children are added to the component the block has at the time they are built, so the transferred
+     * properties are kept.
      *
      * @param event
      * @param entity
@@ -120,23 +192,45 @@ public class SwingingBladeServerSystem extends BaseComponentSystem implements Up
     @ReceiveEvent(priority = EventPriority.PRIORITY_HIGH, components = {SwingingBladeComponent.class, BlockComponent.class})
     public void onSwingingBladeActivated(OnActivatedComponent event, EntityRef entity,
                                          SwingingBladeComponent swingingBladeComponent) {
-        Prefab rodPrefab = assetManager.getAsset("AdventureAssets:rod", Prefab.class).get();
+        childEntityBuildQueue.enqueue(entity, ChildEntityBuildQueue.Priority.COLLIDER, this::buildColliders);
+        swingingBladeRegistry.register(entity);
+    }
+
+    /**
+     * Builds the rod and blade entities of the root entity and attaches them to it. The {@link SwingingBladeComponent} is saved
+     * once, after both children were added to its childrenEntities list.
+     *
+     * @param entity the root entity
+     */
+    private void buildColliders(EntityRef entity) {
+        SwingingBladeComponent swingingBladeComponent = entity.getComponent(SwingingBladeComponent.class);
+        if (swingingBladeComponent == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        Prefab rodPrefab = prefabCache.get(PrefabCache.SWINGING_BLADE_ROD);
+        Prefab bladePrefab = prefabCache.get(PrefabCache.SWINGING_BLADE_BLADE);
+        if (rodPrefab == null || bladePrefab == null) {
+            return;
+        }
         EntityBuilder rodEntityBuilder = entityManager.newBuilder(rodPrefab);
         rodEntityBuilder.setOwner(entity);
         rodEntityBuilder.setPersistent(false);
         EntityRef rod = rodEntityBuilder.build();
         swingingBladeComponent.childrenEntities.add(rod);
-        entity.saveComponent(swingingBladeComponent);
-        Location.attachChild(entity, rod, new Vector3f(0, -1, 0), new Quat4f(Quat4f.IDENTITY));
 
-        Prefab bladePrefab = assetManager.getAsset("AdventureAssets:blade", Prefab.class).get();
         EntityBuilder bladeEntityBuilder = entityManager.newBuilder(bladePrefab);
         bladeEntityBuilder.setOwner(entity);
         bladeEntityBuilder.setPersistent(false);
         EntityRef blade = bladeEntityBuilder.build();
         swingingBladeComponent.childrenEntities.add(blade);
+
         entity.saveComponent(swingingBladeComponent);
+        childEntityBuildQueue.countComponentWrites(1);
+        childEntityBuildQueue.countEntitiesCreated(2);
+        Location.attachChild(entity, rod, new Vector3f(0, -1, 0), new Quat4f(Quat4f.IDENTITY));
         Location.attachChild(entity, blade, new Vector3f(0, -7, 0), new Quat4f(Quat4f.IDENTITY));
+        buildCollidersStatistics.record(System.nanoTime() - start, 1, 1, 2);
     }
 
     @ReceiveEvent
@@ -153,10 +247,26 @@ public class SwingingBladeServerSystem extends BaseComponentSystem implements Up
         swingingBladeRoot.saveComponent(locationComponent);
     }
 
+    /**
+     * Poses the swinging blades close to any player, so that their colliders are correct wherever a player can touch
+     * them. Blades far away from every player are updated at a reduced rate or not at all.<br/>
+     * The blades are posed at the fixed simulation rate of the {@link TrapSimulationRates}, independent of the frame
+     * rate.<br/>
+     * On a listen server or in single player, the {@link SwingingBladeClientSystem} poses the blades for all players
+     * every frame, so they are not posed here a second time.
+     *
+     * @param delta The time (in seconds) since the last engine update.
+     */
     @Override
     public void update(float delta) {
-        for (EntityRef blade : entityManager.getEntitiesWith(SwingingBladeComponent.class, BlockComponent.class)) {
-            SwingingBladeUtilities.rotateSwingingBlade(blade, time.getGameTime());
+        if (networkSystem.getMode().hasLocalClient()
+                || !timestep.advance(delta, trapSimulationRates.getSimulationRate())) {
+            return;
         }
+        long start = System.nanoTime();
+        lodScheduler.beginTick();
+        lodScheduler.addClientObservers();
+        swingingBladeRegistry.rotateAll(time.getGameTime(), lodScheduler);
+        statistics.record(System.nanoTime() - start, swingingBladeRegistry.size(), 0, 0);
     }
 }
@@ -15,24 +15,19 @@
  */
 package org.terasology.adventureassets.traps.swingingblade;
 
-import org.terasology.entitySystem.entity.EntityRef;
-import org.terasology.logic.location.LocationComponent;
-import org.terasology.math.geom.Quat4f;
-
 class SwingingBladeUtilities {
 
-    static void rotateSwingingBlade(EntityRef blade, float gameTime) {
-        LocationComponent locationComponent = blade.getComponent(LocationComponent.class);
-        SwingingBladeComponent swingingBladeComponent = blade.getComponent(SwingingBladeComponent.class);
-        if (locationComponent != null && swingingBladeComponent.isSwinging) {
-            float t = gameTime;
-            float timePeriod = swingingBladeComponent.timePeriod;
-            float pitch, A = swingingBladeComponent.amplitude, phi = swingingBladeComponent.offset;
-            float w = (float) (2 * Math.PI / timePeriod);
-            pitch = (float) (A * Math.cos(w * t + phi));
-            Quat4f rotation = locationComponent.getLocalRotation();
-            locationComponent.setLocalRotation(new Quat4f(rotation.getYaw(), pitch, rotation.getRoll()));
-            blade.saveComponent(locationComponent);
-        }
+    /**
+     * Computes the pitch of a swinging blade at the given game time, A*cos(wt + phi).
+     *
+     * @param gameTime   the current game time (in seconds)
+     * @param timePeriod time taken to complete one to and fro motion (in seconds)
+     * @param amplitude  maximum angle of the swing (in radians)
+     * @param offset     phase offset (in radians)
+     * @return the pitch (in radians)
+     */
+    static float getPitch(float gameTime, float timePeriod, float amplitude, float offset) {
+        float w = (float) (2 * Math.PI / timePeriod);
+        return (float) (amplitude * Math.cos(w * gameTime + offset));
     }
 }
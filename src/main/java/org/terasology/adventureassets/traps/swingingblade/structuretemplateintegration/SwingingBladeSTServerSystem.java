@@ -17,21 +17,22 @@ package org.terasology.adventureassets.traps.swingingblade.structuretemplateinte
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.terasology.adventureassets.TickStatistics;
+import org.terasology.adventureassets.traps.TemplateJsonWriter;
 import org.terasology.adventureassets.traps.swingingblade.SwingingBladeComponent;
 import org.terasology.entitySystem.entity.EntityRef;
 import org.terasology.entitySystem.event.ReceiveEvent;
+import org.terasology.entitySystem.prefab.Prefab;
 import org.terasology.entitySystem.systems.BaseComponentSystem;
 import org.terasology.entitySystem.systems.RegisterMode;
 import org.terasology.entitySystem.systems.RegisterSystem;
 import org.terasology.logic.location.LocationComponent;
-import org.terasology.math.geom.Quat4f;
 import org.terasology.math.geom.Vector3i;
 import org.terasology.registry.In;
 import org.terasology.structureTemplates.events.BuildStructureTemplateEntityEvent;
 import org.terasology.structureTemplates.events.SpawnTemplateEvent;
 import org.terasology.structureTemplates.events.StructureBlocksSpawnedEvent;
 import org.terasology.structureTemplates.internal.events.BuildStructureTemplateStringEvent;
-import org.terasology.structureTemplates.util.ListUtil;
 import org.terasology.structureTemplates.util.transform.BlockRegionTransform;
 import org.terasology.world.BlockEntityRegistry;
 import org.terasology.world.block.BlockComponent;
@@ -49,16 +50,27 @@ public class SwingingBladeSTServerSystem extends BaseComponentSystem {
     BlockManager blockManager;
     @In
     BlockEntityRegistry blockEntityRegistry;
+    @In
+    TickStatistics tickStatistics;
+
+    private TickStatistics.SystemStatistics configureStatistics;
+    private TickStatistics.SystemStatistics captureStatistics;
+
+    @Override
+    public void initialise() {
+        configureStatistics = tickStatistics.register(SwingingBladeSTServerSystem.class.getSimpleName() + ".configure");
+        captureStatistics = tickStatistics.register(SwingingBladeSTServerSystem.class.getSimpleName() + ".capture");
+    }
 
     @ReceiveEvent
     public void onSpawnStructure(StructureBlocksSpawnedEvent event, EntityRef entity,
                                  AddSwingingBladeComponent addSwingingBladeComponent) {
-        configureSwingingBlades(addSwingingBladeComponent, event.getTransformation());
+        configureSwingingBlades(addSwingingBladeComponent, event.getTransformation(), entity);
     }
 
     @ReceiveEvent
     public void onSpawnTemplate(SpawnTemplateEvent event, EntityRef entity, AddSwingingBladeComponent addSwingingBladeComponent) {
-        configureSwingingBlades(addSwingingBladeComponent, event.getTransformation());
+        configureSwingingBlades(addSwingingBladeComponent, event.getTransformation(), entity);
     }
 
     /**
@@ -69,27 +81,49 @@ public class SwingingBladeSTServerSystem extends BaseComponentSystem {
      *
      * @param addSwingingBladeComponent
      * @param transformation
+     * @param template the structure template entity, the spawn time is reported per template
      */
-    private void configureSwingingBlades(AddSwingingBladeComponent addSwingingBladeComponent, BlockRegionTransform transformation) {
-        for (AddSwingingBladeComponent.SwingingBladesToSpawn s : addSwingingBladeComponent.swingingBladesToSpawn) {
-            Vector3i absolutePosition = transformation.transformVector3i(s.position);
-            Quat4f absoluteRotation = transformation.transformRotation(s.rotation);
-            EntityRef swingingBlade = blockEntityRegistry.getBlockEntityAt(absolutePosition);
+    private void configureSwingingBlades(AddSwingingBladeComponent addSwingingBladeComponent, BlockRegionTransform transformation,
+                                         EntityRef template) {
+        long startTime = System.nanoTime();
+        int configured = 0;
+        List<AddSwingingBladeComponent.SwingingBladesToSpawn> swingingBladesToSpawn = addSwingingBladeComponent.swingingBladesToSpawn;
+        for (AddSwingingBladeComponent.SwingingBladesToSpawn s : swingingBladesToSpawn) {
+            Vector3i position = transformation.transformVector3i(s.position);
+            EntityRef swingingBlade = blockEntityRegistry.getBlockEntityAt(position);
             SwingingBladeComponent swingingBladeComponent = swingingBlade.getComponent(SwingingBladeComponent.class);
+            LocationComponent locationComponent = swingingBlade.getComponent(LocationComponent.class);
+            if (swingingBladeComponent == null || locationComponent == null) {
+                logger.warn("No swinging blade found at {} while spawning a structure", position);
+                continue;
+            }
+            locationComponent.setWorldRotation(transformation.transformRotation(s.rotation));
             swingingBladeComponent.amplitude = s.amplitude;
             swingingBladeComponent.timePeriod = s.timePeriod;
             swingingBladeComponent.offset = s.offset;
             swingingBladeComponent.isSwinging = s.isSwinging;
+            swingingBlade.saveComponent(locationComponent);
             swingingBlade.saveComponent(swingingBladeComponent);
-            LocationComponent locationComponent = swingingBlade.getComponent(LocationComponent.class);
-            locationComponent.setWorldRotation(absoluteRotation);
-            swingingBlade.addOrSaveComponent(locationComponent);
+            configured++;
+        }
+        getConfigureStatistics(template).record(System.nanoTime() - startTime, swingingBladesToSpawn.size(), 2 * configured, 0);
+    }
 
+    /**
+     * Returns the statistics into which configuring the traps of the given structure template is recorded, so that the
+     * spawn time is reported for every template.
+     */
+    private TickStatistics.SystemStatistics getConfigureStatistics(EntityRef template) {
+        Prefab prefab = template.getParentPrefab();
+        if (prefab == null) {
+            return configureStatistics;
         }
+        return tickStatistics.register(SwingingBladeSTServerSystem.class.getSimpleName() + ".configure." + prefab.getName());
     }
 
     @ReceiveEvent
     public void onBuildTemplateWithScheduledStructurePlacement(BuildStructureTemplateEntityEvent event, EntityRef entity) {
+        long startTime = System.nanoTime();
         BlockRegionTransform transformToRelative = event.getTransformToRelative();
         BlockFamily blockFamily = blockManager.getBlockFamily("AdventureAssets:SwingingBladeRoot");
 
@@ -117,53 +151,27 @@ public class SwingingBladeSTServerSystem extends BaseComponentSystem {
             addSwingingBladeComponent.swingingBladesToSpawn = swingingBladesToSpawn;
             event.getTemplateEntity().addOrSaveComponent(addSwingingBladeComponent);
         }
+        captureStatistics.record(System.nanoTime() - startTime, swingingBladesToSpawn.size(), swingingBladesToSpawn.isEmpty() ? 0 : 1, 0);
     }
 
     @ReceiveEvent
     public void onBuildTemplateStringWithBlockRegions(BuildStructureTemplateStringEvent event, EntityRef template,
                                                       AddSwingingBladeComponent component) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("    \"AddSwingingBlade\": {\n");
-        sb.append("        \"swingingBladesToSpawn\": [\n");
-        ListUtil.visitList(component.swingingBladesToSpawn,
-                (AddSwingingBladeComponent.SwingingBladesToSpawn swingingBlade, boolean last) -> {
-                    sb.append("            {\n");
-                    sb.append("                \"position\": [");
-                    sb.append(swingingBlade.position.x);
-                    sb.append(", ");
-                    sb.append(swingingBlade.position.y);
-                    sb.append(", ");
-                    sb.append(swingingBlade.position.z);
-                    sb.append("],\n");
-                    sb.append("                \"rotation\": [");
-                    sb.append(swingingBlade.rotation.x);
-                    sb.append(", ");
-                    sb.append(swingingBlade.rotation.y);
-                    sb.append(", ");
-                    sb.append(swingingBlade.rotation.z);
-                    sb.append(", ");
-                    sb.append(swingingBlade.rotation.w);
-                    sb.append("],\n");
-                    sb.append("                \"amplitude\": ");
-                    sb.append(swingingBlade.amplitude);
-                    sb.append(",\n");
-                    sb.append("                \"timePeriod\": ");
-                    sb.append(swingingBlade.timePeriod);
-                    sb.append(",\n");
-                    sb.append("                \"offset\": ");
-                    sb.append(swingingBlade.offset);
-                    sb.append(",\n");
-                    sb.append("                \"isSwinging\": ");
-                    sb.append(swingingBlade.isSwinging);
-                    sb.append("\n");
-                    if (last) {
-                        sb.append("            }\n");
-                    } else {
-                        sb.append("            },\n");
-                    }
-                });
-        sb.append("        ]\n");
-        sb.append("    }");
-        event.addJsonForComponent(sb.toString(), AddSwingingBladeComponent.class);
+        TemplateJsonWriter json = new TemplateJsonWriter();
+        json.name("AddSwingingBlade").beginObject();
+        json.name("swingingBladesToSpawn").beginArray();
+        for (AddSwingingBladeComponent.SwingingBladesToSpawn swingingBlade : component.swingingBladesToSpawn) {
+            json.beginObject();
+            json.name("position").value(swingingBlade.position);
+            json.name("rotation").value(swingingBlade.rotation);
+            json.name("amplitude").value(swingingBlade.amplitude);
+            json.name("timePeriod").value(swingingBlade.timePeriod);
+            json.name("offset").value(swingingBlade.offset);
+            json.name("isSwinging").value(swingingBlade.isSwinging);
+            json.endObject();
+        }
+        json.endArray();
+        json.endObject();
+        event.addJsonForComponent(json.toString(), AddSwingingBladeComponent.class);
     }
 }
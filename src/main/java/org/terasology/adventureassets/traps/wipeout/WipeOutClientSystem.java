@@ -15,14 +15,24 @@
  */
 package org.terasology.adventureassets.traps.wipeout;
 
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.terasology.assets.management.AssetManager;
+import org.terasology.adventureassets.PrefabCache;
+import org.terasology.adventureassets.TickStatistics;
+import org.terasology.adventureassets.traps.ChildEntityBuildQueue;
+import org.terasology.adventureassets.traps.FixedTimestep;
+import org.terasology.adventureassets.traps.TrapLodScheduler;
+import org.terasology.adventureassets.traps.TrapSimulationRates;
 import org.terasology.engine.Time;
 import org.terasology.entitySystem.entity.EntityBuilder;
 import org.terasology.entitySystem.entity.EntityManager;
 import org.terasology.entitySystem.entity.EntityRef;
+import org.terasology.entitySystem.entity.lifecycleEvents.BeforeDeactivateComponent;
+import org.terasology.entitySystem.entity.lifecycleEvents.BeforeRemoveComponent;
 import org.terasology.entitySystem.entity.lifecycleEvents.OnActivatedComponent;
+import org.terasology.entitySystem.entity.lifecycleEvents.OnChangedComponent;
 import org.terasology.entitySystem.event.ReceiveEvent;
 import org.terasology.entitySystem.prefab.Prefab;
 import org.terasology.entitySystem.systems.BaseComponentSystem;
@@ -30,13 +40,19 @@ import org.terasology.entitySystem.systems.RegisterMode;
 import org.terasology.entitySystem.systems.RegisterSystem;
 import org.terasology.entitySystem.systems.UpdateSubscriberSystem;
 import org.terasology.logic.location.Location;
+import org.terasology.logic.location.LocationComponent;
+import org.terasology.logic.players.LocalPlayer;
 import org.terasology.math.geom.Quat4f;
 import org.terasology.math.geom.Vector3f;
-import org.terasology.network.NetworkComponent;
+import org.terasology.network.ClientComponent;
+import org.terasology.network.NetworkSystem;
 import org.terasology.registry.In;
 import org.terasology.world.block.BlockComponent;
 import org.terasology.world.block.items.OnBlockToItem;
 
+import java.util.Map;
+import java.util.Set;
+
 @RegisterSystem(RegisterMode.CLIENT)
 public class WipeOutClientSystem extends BaseComponentSystem implements UpdateSubscriberSystem {
 
@@ -45,12 +61,94 @@ public class WipeOutClientSystem extends BaseComponentSystem implements UpdateSu
     @In
     private EntityManager entityManager;
     @In
-    private AssetManager assetManager;
+    private PrefabCache prefabCache;
+    @In
+    private ChildEntityBuildQueue childEntityBuildQueue;
+    @In
+    private TickStatistics tickStatistics;
+    @In
+    private TrapSimulationRates trapSimulationRates;
     @In
     private Time time;
+    @In
+    private NetworkSystem networkSystem;
+    @In
+    private LocalPlayer localPlayer;
+
+    private final WipeOutRegistry wipeOutRegistry = new WipeOutRegistry();
+    private final TrapLodScheduler lodScheduler = new TrapLodScheduler();
+    private final FixedTimestep timestep = new FixedTimestep();
+    private TickStatistics.SystemStatistics statistics;
+
+    /**
+     * The root entities whose mesh entity is built or queued
+     */
+    private final Set<EntityRef> meshedRoots = Sets.newHashSet();
+
+    /**
+     * The placeholder mesh entities shown in place of the queued mesh entities, by root entity
+     */
+    private final Map<EntityRef, EntityRef> placeholders = Maps.newHashMap();
+
+    @Override
+    public void initialise() {
+        statistics = tickStatistics.register(WipeOutClientSystem.class.getSimpleName());
+    }
+
+    @Override
+    public void postBegin() {
+        for (EntityRef client : entityManager.getEntitiesWith(ClientComponent.class)) {
+            lodScheduler.addClient(client);
+        }
+    }
+
+    /**
+     * Tracks the connected clients, whose characters decide which wipe outs are updated when this client is also the
+     * authority.
+     *
+     * @param event
+     * @param client
+     */
+    @ReceiveEvent(components = {ClientComponent.class})
+    public void onClientActivated(OnActivatedComponent event, EntityRef client) {
+        lodScheduler.addClient(client);
+    }
+
+    @ReceiveEvent(components = {ClientComponent.class})
+    public void onClientDeactivated(BeforeDeactivateComponent event, EntityRef client) {
+        lodScheduler.removeClient(client);
+    }
+
+    @ReceiveEvent(components = {WipeOutComponent.class, LocationComponent.class, BlockComponent.class})
+    public void onWipeOutDestroyed(BeforeRemoveComponent event, EntityRef entity) {
+        childEntityBuildQueue.cancel(entity);
+        meshedRoots.remove(entity);
+        removePlaceholder(entity);
+        wipeOutRegistry.remove(entity);
+    }
+
+    @ReceiveEvent(components = {WipeOutComponent.class, BlockComponent.class})
+    public void onWipeOutDeactivated(BeforeDeactivateComponent event, EntityRef entity) {
+        childEntityBuildQueue.cancel(entity);
+        meshedRoots.remove(entity);
+        removePlaceholder(entity);
+        wipeOutRegistry.remove(entity);
+    }
 
     /**
-     * This method creates the mesh entity when the {@link WipeOutComponent} is activated. The rod and blade
+     * Keeps the cached motion parameters of a wipe out up to date when its settings or base rotation change.
+     *
+     * @param event
+     * @param entity
+     */
+    @ReceiveEvent(components = {WipeOutComponent.class, LocationComponent.class, BlockComponent.class})
+    public void onWipeOutChanged(OnChangedComponent event, EntityRef entity) {
+        wipeOutRegistry.refresh(entity);
+        queueMesh(entity);
+    }
+
+    /**
+     * This method queues the creation of the mesh entity when the {@link WipeOutComponent} is activated. The rod and blade
      * entities are saved in the childrenEntities list inside the {@link WipeOutComponent}.
      * A similar method in the {@link WipeOutServerSystem} adds the rod and surfboard entities to the
      * childrenEntities list.<br/>
@@ -65,23 +163,103 @@ public class WipeOutClientSystem extends BaseComponentSystem implements UpdateSu
      */
     @ReceiveEvent(components = {WipeOutComponent.class, BlockComponent.class})
     public void onWipeOutActivated(OnActivatedComponent event, EntityRef entity, WipeOutComponent wipeOutComponent) {
+        queueMesh(entity);
+        wipeOutRegistry.register(entity);
+    }
+
+    /**
+     * Queues the construction of the mesh entity, once the root entity has the children built by the server.
+     * Until the mesh exists, the trap is shown as a lightweight placeholder mesh, so that it does not pop into view
+     * when the queue catches up.
+     *
+     * @param entity the root entity
+     */
+    private void queueMesh(EntityRef entity) {
+        WipeOutComponent wipeOutComponent = entity.getComponent(WipeOutComponent.class);
         // So that only the relevant server entity (which gets modified by the server system already) is operated on.
-        if (!wipeOutComponent.childrenEntities.isEmpty()) {
-            Prefab wipeOutPrefab = assetManager.getAsset("AdventureAssets:wipeOutMesh", Prefab.class).get();
-            EntityBuilder wipeOutEntityBuilder = entityManager.newBuilder(wipeOutPrefab);
-            wipeOutEntityBuilder.setOwner(entity);
-            wipeOutEntityBuilder.setPersistent(false);
-            EntityRef wipeOutMesh = wipeOutEntityBuilder.build();
-            wipeOutComponent.childrenEntities.add(wipeOutMesh);
-            entity.saveComponent(wipeOutComponent);
-            Location.attachChild(entity, wipeOutMesh, new Vector3f(0, 0, 1), new Quat4f(Quat4f.IDENTITY));
+        if (wipeOutComponent == null || wipeOutComponent.childrenEntities.isEmpty() || !meshedRoots.add(entity)) {
+            return;
+        }
+        showPlaceholder(entity);
+        childEntityBuildQueue.enqueue(entity, ChildEntityBuildQueue.Priority.MESH, this::buildMesh);
+    }
+
+    /**
+     * Builds the placeholder mesh entity of the root entity and attaches it where the mesh entity will be attached.
+     * The placeholder is a single box, which is cheap enough to be built outside of the build queue.
+     *
+     * @param entity the root entity
+     */
+    private void showPlaceholder(EntityRef entity) {
+        Prefab placeholderPrefab = prefabCache.get(PrefabCache.WIPE_OUT_PLACEHOLDER);
+        if (placeholderPrefab == null) {
+            return;
+        }
+        EntityBuilder placeholderBuilder = entityManager.newBuilder(placeholderPrefab);
+        placeholderBuilder.setOwner(entity);
+        placeholderBuilder.setPersistent(false);
+        EntityRef placeholder = placeholderBuilder.build();
+        Location.attachChild(entity, placeholder, new Vector3f(0, 0, 1), new Quat4f(Quat4f.IDENTITY));
+        placeholders.put(entity, placeholder);
+    }
+
+    private void removePlaceholder(EntityRef entity) {
+        EntityRef placeholder = placeholders.remove(entity);
+        if (placeholder != null) {
+            placeholder.destroy();
+        }
+    }
+
+    /**
+     * Builds the wipe out mesh entity of the root entity and attaches it to it.
+     *
+     * @param entity the root entity
+     */
+    private void buildMesh(EntityRef entity) {
+        WipeOutComponent wipeOutComponent = entity.getComponent(WipeOutComponent.class);
+        if (wipeOutComponent == null) {
+            return;
+        }
+        Prefab wipeOutPrefab = prefabCache.get(PrefabCache.WIPE_OUT_MESH);
+        if (wipeOutPrefab == null) {
+            return;
         }
+        EntityBuilder wipeOutEntityBuilder = entityManager.newBuilder(wipeOutPrefab);
+        wipeOutEntityBuilder.setOwner(entity);
+        wipeOutEntityBuilder.setPersistent(false);
+        EntityRef wipeOutMesh = wipeOutEntityBuilder.build();
+        wipeOutComponent.childrenEntities.add(wipeOutMesh);
+        entity.saveComponent(wipeOutComponent);
+        childEntityBuildQueue.countComponentWrites(1);
+        childEntityBuildQueue.countEntitiesCreated(1);
+        Location.attachChild(entity, wipeOutMesh, new Vector3f(0, 0, 1), new Quat4f(Quat4f.IDENTITY));
+        removePlaceholder(entity);
     }
 
+    /**
+     * Rotates the wipe outs on this client, at a rate depending on their distance to the local player. The
+     * rotation is written into the location of the wipe out in place, which the mesh renderer picks up in the same
+     * frame, so animating the wipe outs sends no entity events.<br/>
+     * The wipe outs are rotated at most at the client rate. When this client is also the authority, the
+     * {@link WipeOutServerSystem} leaves the rotation to this system, which then rotates the wipe outs close to any
+     * connected player, so that they are rotated once per frame and animated smoothly.
+     *
+     * @param delta The time (in seconds) since the last engine update.
+     */
     @Override
     public void update(float delta) {
-        for (EntityRef wipeOut : entityManager.getEntitiesWith(WipeOutComponent.class, BlockComponent.class)) {
-            WipeOutUtilities.rotateWipeOut(wipeOut, time.getGameTime());
+        if (!timestep.advance(delta, trapSimulationRates.getClientRate())) {
+            return;
+        }
+        long start = System.nanoTime();
+        lodScheduler.beginTick();
+        if (networkSystem.getMode().isAuthority()) {
+            lodScheduler.addClientObservers();
+        } else {
+            lodScheduler.addObserver(localPlayer.getPosition());
         }
+        wipeOutRegistry.setAngleEpsilon(trapSimulationRates.getWipeOutAngleEpsilon());
+        wipeOutRegistry.rotateAll(time.getGameTime(), lodScheduler);
+        statistics.record(System.nanoTime() - start, wipeOutRegistry.size(), 0, 0);
     }
 }
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2017 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.adventureassets.traps.wipeout;
+
+import com.google.common.collect.Maps;
+import org.terasology.adventureassets.traps.TrapLodScheduler;
+import org.terasology.adventureassets.traps.TrapParameterGroups;
+import org.terasology.adventureassets.traps.TrapSimulationRates;
+import org.terasology.adventureassets.traps.TrapUtilities;
+import org.terasology.entitySystem.entity.EntityRef;
+import org.terasology.logic.location.LocationComponent;
+import org.terasology.math.geom.Quat4f;
+import org.terasology.math.geom.Vector3f;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Keeps the motion parameters of all active wipe out roots in flat primitive arrays and updates their rotation in
+ * batches.<br/>
+ * Wipe outs with the same time period, offset and direction rotate in unison, so they share a parameter group. Every
+ * tick the angle of each group is first computed into a reusable buffer. The {@link LocationComponent}s are then
+ * committed in a single pass, skipping every wipe out whose angle moved less than the angle epsilon since its last
+ * commit.
+ */
+class WipeOutRegistry {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final float TWO_PI = (float) (2 * Math.PI);
+
+    private final Map<EntityRef, Integer> indices = Maps.newHashMap();
+
+    /**
+     * Scratch rotation, copied into the {@link LocationComponent} by {@link LocationComponent#setLocalRotation}
+     */
+    private final Quat4f scratchRotation = new Quat4f();
+    private final TrapParameterGroups motionGroups = new TrapParameterGroups();
+    private float angleEpsilon = TrapSimulationRates.DEFAULT_WIPE_OUT_ANGLE_EPSILON;
+
+    private EntityRef[] entities = new EntityRef[INITIAL_CAPACITY];
+    private LocationComponent[] locations = new LocationComponent[INITIAL_CAPACITY];
+    private int[] groups = new int[INITIAL_CAPACITY];
+    private int[] slots = new int[INITIAL_CAPACITY];
+    private float[] pitches = new float[INITIAL_CAPACITY];
+    private float[] rolls = new float[INITIAL_CAPACITY];
+    private boolean[] rotating = new boolean[INITIAL_CAPACITY];
+    private float[] groupAngles = new float[INITIAL_CAPACITY];
+    private float[] committedAngles = new float[INITIAL_CAPACITY];
+    private boolean[] scheduled = new boolean[INITIAL_CAPACITY];
+    private float[] positions = new float[3 * INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * @param angleEpsilon smallest change of angle (in radians) that is committed
+     */
+    void setAngleEpsilon(float angleEpsilon) {
+        this.angleEpsilon = angleEpsilon;
+    }
+
+    /**
+     * Adds the wipe out root to the registry, or re-reads its parameters if it is already registered.
+     *
+     * @param wipeOut the wipe out root entity
+     */
+    void register(EntityRef wipeOut) {
+        WipeOutComponent wipeOutComponent = wipeOut.getComponent(WipeOutComponent.class);
+        LocationComponent locationComponent = wipeOut.getComponent(LocationComponent.class);
+        if (wipeOutComponent == null || locationComponent == null) {
+            remove(wipeOut);
+            return;
+        }
+        // The new group is acquired before the old one is released, so unchanged parameters keep their group
+        int group = motionGroups.acquire(wipeOutComponent.timePeriod, wipeOutComponent.offset,
+                wipeOutComponent.direction);
+        Integer index = indices.get(wipeOut);
+        if (index == null) {
+            ensureCapacity(size + 1);
+            index = size++;
+            indices.put(wipeOut, index);
+            entities[index] = wipeOut;
+            slots[index] = (int) wipeOut.getId();
+        } else {
+            motionGroups.release(groups[index]);
+        }
+        groups[index] = group;
+        Quat4f rotation = locationComponent.getLocalRotation();
+        Vector3f position = locationComponent.getWorldPosition();
+        locations[index] = locationComponent;
+        positions[3 * index] = position.x;
+        positions[3 * index + 1] = position.y;
+        positions[3 * index + 2] = position.z;
+        pitches[index] = rotation.getPitch();
+        rolls[index] = rotation.getRoll();
+        rotating[index] = wipeOutComponent.isRotating;
+        committedAngles[index] = Float.NaN;
+    }
+
+    /**
+     * Re-reads the parameters of the wipe out root, if it is registered.
+     *
+     * @param wipeOut the wipe out root entity
+     */
+    void refresh(EntityRef wipeOut) {
+        if (indices.containsKey(wipeOut)) {
+            register(wipeOut);
+        }
+    }
+
+    void remove(EntityRef wipeOut) {
+        Integer index = indices.remove(wipeOut);
+        if (index == null) {
+            return;
+        }
+        motionGroups.release(groups[index]);
+        int last = --size;
+        if (index != last) {
+            entities[index] = entities[last];
+            locations[index] = locations[last];
+            groups[index] = groups[last];
+            slots[index] = slots[last];
+            pitches[index] = pitches[last];
+            rolls[index] = rolls[last];
+            rotating[index] = rotating[last];
+            committedAngles[index] = committedAngles[last];
+            System.arraycopy(positions, 3 * last, positions, 3 * index, 3);
+            indices.put(entities[index], index);
+        }
+        entities[last] = null;
+        locations[last] = null;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Rotates the registered wipe outs that the scheduler selects to their pose at the given game time.<br/>
+     * The pose is written into the {@link LocationComponent} in place, and only when the angle moved by at least the
+     * angle epsilon. The mesh renderer reads the location every frame, so the mesh follows the pose without a change
+     * event.
+     *
+     * @param gameTime     the current game time (in seconds)
+     * @param lodScheduler decides which wipe outs are updated in this tick
+     */
+    void rotateAll(float gameTime, TrapLodScheduler lodScheduler) {
+        int groupCount = motionGroups.capacity();
+        if (groupAngles.length < groupCount) {
+            groupAngles = new float[Math.max(groupCount, 2 * groupAngles.length)];
+        }
+        evaluateGroups(gameTime, groupCount);
+        schedule(lodScheduler);
+
+        for (int i = 0; i < size; i++) {
+            if (!scheduled[i]) {
+                continue;
+            }
+            float angle = groupAngles[groups[i]];
+            if (hasMoved(committedAngles[i], angle)) {
+                TrapUtilities.setRotation(scratchRotation, angle, pitches[i], rolls[i]);
+                locations[i].setLocalRotation(scratchRotation);
+                committedAngles[i] = angle;
+            }
+        }
+    }
+
+    /**
+     * Evaluates the angles of the used parameter groups into the buffer.
+     */
+    private void evaluateGroups(float gameTime, int groupCount) {
+        for (int group = 0; group < groupCount; group++) {
+            if (motionGroups.isUsed(group)) {
+                float[] parameters = motionGroups.getParameters(group);
+                groupAngles[group] = WipeOutUtilities.getAngle(gameTime, parameters[0], parameters[1],
+                        (int) parameters[2]);
+            }
+        }
+    }
+
+    /**
+     * Decides which of the wipe outs are updated in this tick.
+     */
+    private void schedule(TrapLodScheduler lodScheduler) {
+        for (int i = 0; i < size; i++) {
+            scheduled[i] = rotating[i]
+                    && lodScheduler.shouldUpdate(positions[3 * i], positions[3 * i + 1], positions[3 * i + 2],
+                            slots[i]);
+        }
+    }
+
+    private boolean hasMoved(float committedAngle, float angle) {
+        if (Float.isNaN(committedAngle)) {
+            return true;
+        }
+        float delta = Math.abs(angle - committedAngle) % TWO_PI;
+        return Math.min(delta, TWO_PI - delta) >= angleEpsilon;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= entities.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, entities.length * 2);
+        entities = Arrays.copyOf(entities, newCapacity);
+        locations = Arrays.copyOf(locations, newCapacity);
+        groups = Arrays.copyOf(groups, newCapacity);
+        slots = Arrays.copyOf(slots, newCapacity);
+        pitches = Arrays.copyOf(pitches, newCapacity);
+        rolls = Arrays.copyOf(rolls, newCapacity);
+        rotating = Arrays.copyOf(rotating, newCapacity);
+        committedAngles = Arrays.copyOf(committedAngles, newCapacity);
+        scheduled = Arrays.copyOf(scheduled, newCapacity);
+        positions = Arrays.copyOf(positions, 3 * newCapacity);
+    }
+}
@@ -18,12 +18,20 @@ package org.terasology.adventureassets.traps.wipeout;
 import com.google.common.collect.Lists;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.terasology.assets.management.AssetManager;
+import org.terasology.adventureassets.PrefabCache;
+import org.terasology.adventureassets.TickStatistics;
+import org.terasology.adventureassets.traps.ChildEntityBuildQueue;
+import org.terasology.adventureassets.traps.FixedTimestep;
+import org.terasology.adventureassets.traps.TrapLodScheduler;
+import org.terasology.adventureassets.traps.TrapSimulationRates;
 import org.terasology.engine.Time;
 import org.terasology.entitySystem.entity.EntityBuilder;
 import org.terasology.entitySystem.entity.EntityManager;
 import org.terasology.entitySystem.entity.EntityRef;
+import org.terasology.entitySystem.entity.lifecycleEvents.BeforeDeactivateComponent;
+import org.terasology.entitySystem.entity.lifecycleEvents.BeforeRemoveComponent;
 import org.terasology.entitySystem.entity.lifecycleEvents.OnActivatedComponent;
+import org.terasology.entitySystem.entity.lifecycleEvents.OnChangedComponent;
 import org.terasology.entitySystem.event.EventPriority;
 import org.terasology.entitySystem.event.ReceiveEvent;
 import org.terasology.entitySystem.prefab.Prefab;
@@ -36,6 +44,8 @@ import org.terasology.logic.location.Location;
 import org.terasology.logic.location.LocationComponent;
 import org.terasology.math.geom.Quat4f;
 import org.terasology.math.geom.Vector3f;
+import org.terasology.network.ClientComponent;
+import org.terasology.network.NetworkSystem;
 import org.terasology.registry.In;
 import org.terasology.world.block.BlockComponent;
 import org.terasology.world.block.items.BlockItemComponent;
@@ -50,19 +60,85 @@ public class WipeOutServerSystem extends BaseComponentSystem implements UpdateSu
     @In
     private EntityManager entityManager;
     @In
-    private AssetManager assetManager;
+    private PrefabCache prefabCache;
+    @In
+    private ChildEntityBuildQueue childEntityBuildQueue;
+    @In
+    private TickStatistics tickStatistics;
+    @In
+    private TrapSimulationRates trapSimulationRates;
     @In
     private InventoryManager inventoryManager;
     @In
+    private NetworkSystem networkSystem;
+    @In
     private Time time;
 
+    private final WipeOutRegistry wipeOutRegistry = new WipeOutRegistry();
+    private final TrapLodScheduler lodScheduler = new TrapLodScheduler();
+    private final FixedTimestep timestep = new FixedTimestep();
+    private TickStatistics.SystemStatistics statistics;
+    private TickStatistics.SystemStatistics buildCollidersStatistics;
+
+    @Override
+    public void initialise() {
+        statistics = tickStatistics.register(WipeOutServerSystem.class.getSimpleName());
+        buildCollidersStatistics = tickStatistics.register(WipeOutServerSystem.class.getSimpleName() + ".buildColliders");
+    }
+
+    @Override
+    public void postBegin() {
+        for (EntityRef client : entityManager.getEntitiesWith(ClientComponent.class)) {
+            lodScheduler.addClient(client);
+        }
+    }
+
+    /**
+     * Tracks the connected clients, whose characters decide which wipe outs are updated.
+     *
+     * @param event
+     * @param client
+     */
+    @ReceiveEvent(components = {ClientComponent.class})
+    public void onClientActivated(OnActivatedComponent event, EntityRef client) {
+        lodScheduler.addClient(client);
+    }
+
+    @ReceiveEvent(components = {ClientComponent.class})
+    public void onClientDeactivated(BeforeDeactivateComponent event, EntityRef client) {
+        lodScheduler.removeClient(client);
+    }
+
+    @ReceiveEvent(components = {WipeOutComponent.class, LocationComponent.class, BlockComponent.class})
+    public void onWipeOutDestroyed(BeforeRemoveComponent event, EntityRef entity) {
+        childEntityBuildQueue.cancel(entity);
+        wipeOutRegistry.remove(entity);
+    }
+
+    @ReceiveEvent(components = {WipeOutComponent.class, BlockComponent.class})
+    public void onWipeOutDeactivated(BeforeDeactivateComponent event, EntityRef entity) {
+        childEntityBuildQueue.cancel(entity);
+        wipeOutRegistry.remove(entity);
+    }
+
+    /**
+     * Keeps the cached motion parameters of a wipe out up to date when its settings or base rotation change.
+     *
+     * @param event
+     * @param entity
+     */
+    @ReceiveEvent(components = {WipeOutComponent.class, LocationComponent.class, BlockComponent.class})
+    public void onWipeOutChanged(OnChangedComponent event, EntityRef entity) {
+        wipeOutRegistry.refresh(entity);
+    }
+
     /**
      * This method transfers the saved block properties from the item to the block. <br/>
      * Note that this method is called after the OnActivatedComponent event handler
      * {@link WipeOutServerSystem#onWipeOutActivated(OnActivatedComponent, EntityRef, WipeOutComponent)}
      * filtering the {@link WipeOutComponent} gets executed.
-     * So the placedBlock entity already has the right childrenEntities and only needs the trap properties to be
-     * transferred.
+     * So the placedBlock entity already has the childrenEntities built so far, and only needs the trap properties to be
+     * transferred. Children whose construction is still queued are added to the component afterwards.
      *
      * @param event
      * @param itemEntity
@@ -99,13 +175,14 @@ public class WipeOutServerSystem extends BaseComponentSystem implements UpdateSu
     }
 
     /**
-     * This method creates the rod and surfboard entities when the {@link WipeOutComponent} is activated. The rod and
-     * surfboard entities are saved in the childrenEntities list inside the {@link WipeOutComponent}.
+     * This method queues the creation of the rod and surfboard entities when the {@link WipeOutComponent} is activated. The
+     * {@link ChildEntityBuildQueue} builds them within the next frames and saves them in the childrenEntities list
+     * inside the {@link WipeOutComponent}, so that activating many traps at once does not build all of their children
+     * in one frame.
      * A similar method in the {@link WipeOutClientSystem} adds the mesh entity to the childrenEntities list.<br/>
-     * Note this happens before the block is actually placed in the world i.e. before the OnBlockItemPlacedEvent handler-
-     * {@link WipeOutServerSystem#onBlockToItem(OnBlockToItem, EntityRef, WipeOutComponent)} gets called.
-     * So, the saved properties (offset, time-period etc) are transferred after this, maintaining
-     * only the childrenEntities list created here.
+     * The saved properties (offset, time-period etc) are transferred by the OnBlockItemPlacedEvent handler right after this. The
+     * children are added to the component the block has at the time they are built, so the transferred
+     * properties are kept.
      *
      * @param event
      * @param entity
@@ -114,23 +191,45 @@ public class WipeOutServerSystem extends BaseComponentSystem implements UpdateSu
     @ReceiveEvent(priority = EventPriority.PRIORITY_HIGH, components = {WipeOutComponent.class, BlockComponent.class})
     public void onWipeOutActivated(OnActivatedComponent event, EntityRef entity,
                                    WipeOutComponent wipeOutComponent) {
-        Prefab rodPrefab = assetManager.getAsset("AdventureAssets:wipeOutRod", Prefab.class).get();
+        childEntityBuildQueue.enqueue(entity, ChildEntityBuildQueue.Priority.COLLIDER, this::buildColliders);
+        wipeOutRegistry.register(entity);
+    }
+
+    /**
+     * Builds the rod and surfboard entities of the root entity and attaches them to it. The {@link WipeOutComponent} is saved
+     * once, after both children were added to its childrenEntities list.
+     *
+     * @param entity the root entity
+     */
+    private void buildColliders(EntityRef entity) {
+        WipeOutComponent wipeOutComponent = entity.getComponent(WipeOutComponent.class);
+        if (wipeOutComponent == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        Prefab rodPrefab = prefabCache.get(PrefabCache.WIPE_OUT_ROD);
+        Prefab surfboardPrefab = prefabCache.get(PrefabCache.WIPE_OUT_SURFBOARD);
+        if (rodPrefab == null || surfboardPrefab == null) {
+            return;
+        }
         EntityBuilder rodEntityBuilder = entityManager.newBuilder(rodPrefab);
         rodEntityBuilder.setOwner(entity);
         rodEntityBuilder.setPersistent(false);
         EntityRef rod = rodEntityBuilder.build();
         wipeOutComponent.childrenEntities.add(rod);
-        entity.saveComponent(wipeOutComponent);
-        Location.attachChild(entity, rod, new Vector3f(0, 0, 3), new Quat4f(Quat4f.IDENTITY));
 
-        Prefab surfboardPrefab = assetManager.getAsset("AdventureAssets:wipeOutSurfboard", Prefab.class).get();
         EntityBuilder surfboardEntityBuilder = entityManager.newBuilder(surfboardPrefab);
         surfboardEntityBuilder.setOwner(entity);
         surfboardEntityBuilder.setPersistent(false);
         EntityRef surfboard = surfboardEntityBuilder.build();
         wipeOutComponent.childrenEntities.add(surfboard);
+
         entity.saveComponent(wipeOutComponent);
+        childEntityBuildQueue.countComponentWrites(1);
+        childEntityBuildQueue.countEntitiesCreated(2);
+        Location.attachChild(entity, rod, new Vector3f(0, 0, 3), new Quat4f(Quat4f.IDENTITY));
         Location.attachChild(entity, surfboard, new Vector3f(0, 0, 7), new Quat4f(Quat4f.IDENTITY));
+        buildCollidersStatistics.record(System.nanoTime() - start, 1, 1, 2);
     }
 
     @ReceiveEvent
@@ -147,10 +246,27 @@ public class WipeOutServerSystem extends BaseComponentSystem implements UpdateSu
         wipeOutRoot.saveComponent(locationComponent);
     }
 
+    /**
+     * Rotates the wipe outs close to any player, so that their colliders are correct wherever a player can touch
+     * them. Wipe outs far away from every player are updated at a reduced rate or not at all.<br/>
+     * The wipe outs are rotated at the fixed simulation rate of the {@link TrapSimulationRates}, independent of the
+     * frame rate.<br/>
+     * On a listen server or in single player, the {@link WipeOutClientSystem} rotates the wipe outs for all players
+     * every frame, so they are not rotated here a second time.
+     *
+     * @param delta The time (in seconds) since the last engine update.
+     */
     @Override
     public void update(float delta) {
-        for (EntityRef wipeOut : entityManager.getEntitiesWith(WipeOutComponent.class, BlockComponent.class)) {
-            WipeOutUtilities.rotateWipeOut(wipeOut, time.getGameTime());
+        if (networkSystem.getMode().hasLocalClient()
+                || !timestep.advance(delta, trapSimulationRates.getSimulationRate())) {
+            return;
         }
+        long start = System.nanoTime();
+        lodScheduler.beginTick();
+        lodScheduler.addClientObservers();
+        wipeOutRegistry.setAngleEpsilon(trapSimulationRates.getWipeOutAngleEpsilon());
+        wipeOutRegistry.rotateAll(time.getGameTime(), lodScheduler);
+        statistics.record(System.nanoTime() - start, wipeOutRegistry.size(), 0, 0);
     }
 }
@@ -15,23 +15,18 @@
  */
 package org.terasology.adventureassets.traps.wipeout;
 
-import org.terasology.entitySystem.entity.EntityRef;
-import org.terasology.logic.location.LocationComponent;
-import org.terasology.math.geom.Quat4f;
-
 class WipeOutUtilities {
 
-    static void rotateWipeOut(EntityRef wipeOut, float gameTime) {
-        LocationComponent locationComponent = wipeOut.getComponent(LocationComponent.class);
-        WipeOutComponent wipeOutComponent = wipeOut.getComponent(WipeOutComponent.class);
-        if (locationComponent != null && wipeOutComponent.isRotating) {
-            float t = gameTime;
-            float timePeriod = wipeOutComponent.timePeriod;
-            float offset = wipeOutComponent.offset;
-            float angle = (float) (((t + offset) % timePeriod) * (2 * Math.PI / timePeriod)) * wipeOutComponent.direction;
-            Quat4f rotation = locationComponent.getLocalRotation();
-            locationComponent.setLocalRotation(new Quat4f(angle, rotation.getPitch(), rotation.getRoll()));
-            wipeOut.saveComponent(locationComponent);
-        }
+    /**
+     * Computes the yaw of a wipe out at the given game time.
+     *
+     * @param gameTime   the current game time (in seconds)
+     * @param timePeriod time taken to complete one circle (in seconds)
+     * @param offset     offset, a fraction of the time period (in seconds)
+     * @param direction  1 for anticlockwise, -1 for clockwise
+     * @return the yaw (in radians)
+     */
+    static float getAngle(float gameTime, float timePeriod, float offset, int direction) {
+        return (float) (((gameTime + offset) % timePeriod) * (2 * Math.PI / timePeriod)) * direction;
     }
 }
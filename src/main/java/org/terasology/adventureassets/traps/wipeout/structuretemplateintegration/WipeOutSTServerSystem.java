@@ -17,21 +17,22 @@ package org.terasology.adventureassets.traps.wipeout.structuretemplateintegratio
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.terasology.adventureassets.TickStatistics;
+import org.terasology.adventureassets.traps.TemplateJsonWriter;
 import org.terasology.adventureassets.traps.wipeout.WipeOutComponent;
 import org.terasology.entitySystem.entity.EntityRef;
 import org.terasology.entitySystem.event.ReceiveEvent;
+import org.terasology.entitySystem.prefab.Prefab;
 import org.terasology.entitySystem.systems.BaseComponentSystem;
 import org.terasology.entitySystem.systems.RegisterMode;
 import org.terasology.entitySystem.systems.RegisterSystem;
 import org.terasology.logic.location.LocationComponent;
-import org.terasology.math.geom.Quat4f;
 import org.terasology.math.geom.Vector3i;
 import org.terasology.registry.In;
 import org.terasology.structureTemplates.events.BuildStructureTemplateEntityEvent;
 import org.terasology.structureTemplates.events.SpawnTemplateEvent;
 import org.terasology.structureTemplates.events.StructureBlocksSpawnedEvent;
 import org.terasology.structureTemplates.internal.events.BuildStructureTemplateStringEvent;
-import org.terasology.structureTemplates.util.ListUtil;
 import org.terasology.structureTemplates.util.transform.BlockRegionTransform;
 import org.terasology.world.BlockEntityRegistry;
 import org.terasology.world.block.BlockComponent;
@@ -49,16 +50,27 @@ public class WipeOutSTServerSystem extends BaseComponentSystem {
     BlockManager blockManager;
     @In
     BlockEntityRegistry blockEntityRegistry;
+    @In
+    TickStatistics tickStatistics;
+
+    private TickStatistics.SystemStatistics configureStatistics;
+    private TickStatistics.SystemStatistics captureStatistics;
+
+    @Override
+    public void initialise() {
+        configureStatistics = tickStatistics.register(WipeOutSTServerSystem.class.getSimpleName() + ".configure");
+        captureStatistics = tickStatistics.register(WipeOutSTServerSystem.class.getSimpleName() + ".capture");
+    }
 
     @ReceiveEvent
     public void onSpawnStructure(StructureBlocksSpawnedEvent event, EntityRef entity,
                                  AddWipeOutComponent addWipeOutComponent) {
-        configureWipeOut(addWipeOutComponent, event.getTransformation());
+        configureWipeOut(addWipeOutComponent, event.getTransformation(), entity);
     }
 
     @ReceiveEvent
     public void onSpawnTemplate(SpawnTemplateEvent event, EntityRef entity, AddWipeOutComponent addWipeOutComponent) {
-        configureWipeOut(addWipeOutComponent, event.getTransformation());
+        configureWipeOut(addWipeOutComponent, event.getTransformation(), entity);
     }
 
     /**
@@ -69,28 +81,49 @@ public class WipeOutSTServerSystem extends BaseComponentSystem {
      *
      * @param addWipeOutComponent
      * @param transformation
+     * @param template the structure template entity, the spawn time is reported per template
      */
-    private void configureWipeOut(AddWipeOutComponent addWipeOutComponent, BlockRegionTransform transformation) {
-        for (AddWipeOutComponent.WipeOutsToSpawn w : addWipeOutComponent.wipeOutsToSpawn) {
-            Vector3i absolutePosition = transformation.transformVector3i(w.position);
-            Quat4f absoluteRotation = transformation.transformRotation(w.rotation);
-            EntityRef wipeOut = blockEntityRegistry.getBlockEntityAt(absolutePosition);
+    private void configureWipeOut(AddWipeOutComponent addWipeOutComponent, BlockRegionTransform transformation,
+                                  EntityRef template) {
+        long startTime = System.nanoTime();
+        int configured = 0;
+        List<AddWipeOutComponent.WipeOutsToSpawn> wipeOutsToSpawn = addWipeOutComponent.wipeOutsToSpawn;
+        for (AddWipeOutComponent.WipeOutsToSpawn w : wipeOutsToSpawn) {
+            Vector3i position = transformation.transformVector3i(w.position);
+            EntityRef wipeOut = blockEntityRegistry.getBlockEntityAt(position);
             WipeOutComponent wipeOutComponent = wipeOut.getComponent(WipeOutComponent.class);
+            LocationComponent locationComponent = wipeOut.getComponent(LocationComponent.class);
+            if (wipeOutComponent == null || locationComponent == null) {
+                logger.warn("No wipe out found at {} while spawning a structure", position);
+                continue;
+            }
+            locationComponent.setWorldRotation(transformation.transformRotation(w.rotation));
             wipeOutComponent.direction = w.direction;
             wipeOutComponent.timePeriod = w.timePeriod;
             wipeOutComponent.offset = w.offset;
             wipeOutComponent.isRotating = w.isRotating;
-
+            wipeOut.saveComponent(locationComponent);
             wipeOut.saveComponent(wipeOutComponent);
-            LocationComponent locationComponent = wipeOut.getComponent(LocationComponent.class);
-            locationComponent.setWorldRotation(absoluteRotation);
-            wipeOut.addOrSaveComponent(locationComponent);
+            configured++;
+        }
+        getConfigureStatistics(template).record(System.nanoTime() - startTime, wipeOutsToSpawn.size(), 2 * configured, 0);
+    }
 
+    /**
+     * Returns the statistics into which configuring the traps of the given structure template is recorded, so that the
+     * spawn time is reported for every template.
+     */
+    private TickStatistics.SystemStatistics getConfigureStatistics(EntityRef template) {
+        Prefab prefab = template.getParentPrefab();
+        if (prefab == null) {
+            return configureStatistics;
         }
+        return tickStatistics.register(WipeOutSTServerSystem.class.getSimpleName() + ".configure." + prefab.getName());
     }
 
     @ReceiveEvent
     public void onBuildTemplateWithScheduledStructurePlacement(BuildStructureTemplateEntityEvent event, EntityRef entity) {
+        long startTime = System.nanoTime();
         BlockRegionTransform transformToRelative = event.getTransformToRelative();
         BlockFamily blockFamily = blockManager.getBlockFamily("AdventureAssets:WipeOutRoot");
 
@@ -118,53 +151,27 @@ public class WipeOutSTServerSystem extends BaseComponentSystem {
             addWipeOutComponent.wipeOutsToSpawn = wipeOutsToSpawns;
             event.getTemplateEntity().addOrSaveComponent(addWipeOutComponent);
         }
+        captureStatistics.record(System.nanoTime() - startTime, wipeOutsToSpawns.size(), wipeOutsToSpawns.isEmpty() ? 0 : 1, 0);
     }
 
     @ReceiveEvent
     public void onBuildTemplateStringWithBlockRegions(BuildStructureTemplateStringEvent event, EntityRef template,
                                                       AddWipeOutComponent component) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("    \"AddWipeOut\": {\n");
-        sb.append("        \"WipeOutsToSpawn\": [\n");
-        ListUtil.visitList(component.wipeOutsToSpawn,
-                (AddWipeOutComponent.WipeOutsToSpawn wipeOut, boolean last) -> {
-                    sb.append("            {\n");
-                    sb.append("                \"position\": [");
-                    sb.append(wipeOut.position.x);
-                    sb.append(", ");
-                    sb.append(wipeOut.position.y);
-                    sb.append(", ");
-                    sb.append(wipeOut.position.z);
-                    sb.append("],\n");
-                    sb.append("                \"rotation\": [");
-                    sb.append(wipeOut.rotation.x);
-                    sb.append(", ");
-                    sb.append(wipeOut.rotation.y);
-                    sb.append(", ");
-                    sb.append(wipeOut.rotation.z);
-                    sb.append(", ");
-                    sb.append(wipeOut.rotation.w);
-                    sb.append("],\n");
-                    sb.append("                \"direction\": ");
-                    sb.append(wipeOut.direction);
-                    sb.append(",\n");
-                    sb.append("                \"timePeriod\": ");
-                    sb.append(wipeOut.timePeriod);
-                    sb.append(",\n");
-                    sb.append("                \"offset\": ");
-                    sb.append(wipeOut.offset);
-                    sb.append(",\n");
-                    sb.append("                \"isRotating\": ");
-                    sb.append(wipeOut.isRotating);
-                    sb.append("\n");
-                    if (last) {
-                        sb.append("            }\n");
-                    } else {
-                        sb.append("            },\n");
-                    }
-                });
-        sb.append("        ]\n");
-        sb.append("    }");
-        event.addJsonForComponent(sb.toString(), AddWipeOutComponent.class);
+        TemplateJsonWriter json = new TemplateJsonWriter();
+        json.name("AddWipeOut").beginObject();
+        json.name("WipeOutsToSpawn").beginArray();
+        for (AddWipeOutComponent.WipeOutsToSpawn wipeOut : component.wipeOutsToSpawn) {
+            json.beginObject();
+            json.name("position").value(wipeOut.position);
+            json.name("rotation").value(wipeOut.rotation);
+            json.name("direction").value(wipeOut.direction);
+            json.name("timePeriod").value(wipeOut.timePeriod);
+            json.name("offset").value(wipeOut.offset);
+            json.name("isRotating").value(wipeOut.isRotating);
+            json.endObject();
+        }
+        json.endArray();
+        json.endObject();
+        event.addJsonForComponent(json.toString(), AddWipeOutComponent.class);
     }
 }